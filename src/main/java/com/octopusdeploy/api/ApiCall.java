@@ -0,0 +1,141 @@
+package com.octopusdeploy.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A single request made by the AuthenticatedWebClient, as seen by an ApiCallListener.
+ * The call is identified by its endpoint template (the resource with ids replaced by
+ * placeholders) so that calls against different projects, releases or tasks can be
+ * aggregated together.
+ */
+public final class ApiCall {
+    /** Octopus resource ids look like Projects-123, ServerTasks-4567 or Spaces-1 */
+    private static final Pattern RESOURCE_ID_PATTERN = Pattern.compile("[A-Za-z]+-\\d+(?=/|$)");
+    private static final Pattern NUMERIC_SEGMENT_PATTERN = Pattern.compile("(?<=/|^)\\d+(?=/|$)");
+    private static final String ID_PLACEHOLDER = "{id}";
+
+    private final String method;
+    public String getMethod() {
+        return method;
+    }
+
+    private final String resource;
+    public String getResource() {
+        return resource;
+    }
+
+    private final String endpointTemplate;
+    public String getEndpointTemplate() {
+        return endpointTemplate;
+    }
+
+    private final long startNanos;
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    private long endNanos;
+    /**
+     * The time the call took, or the time elapsed so far if it is still in flight.
+     * @return duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getDurationNanos());
+    }
+
+    private int responseCode = -1;
+    /**
+     * The HTTP response code.
+     * @return The HTTP response code, or -1 if no response was received.
+     */
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    private long responseBytes;
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    private Throwable failure;
+    /**
+     * The error that prevented a response from being read, if any.
+     * @return the failure or null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private Map<Object, Object> attachments;
+
+    ApiCall(String method, String resource) {
+        this.method = method;
+        this.resource = resource;
+        this.endpointTemplate = toEndpointTemplate(resource);
+        this.startNanos = System.nanoTime();
+    }
+
+    void completed(int responseCode, long responseBytes) {
+        this.responseCode = responseCode;
+        this.responseBytes = responseBytes;
+        this.endNanos = System.nanoTime();
+    }
+
+    void failed(Throwable failure) {
+        this.failure = failure;
+        this.endNanos = System.nanoTime();
+    }
+
+    boolean isFinished() {
+        return endNanos != 0;
+    }
+
+    /**
+     * Lets a listener keep per-call state between callStarted and callFinished.
+     * @param key a key owned by the listener
+     * @param value the value to keep
+     */
+    public synchronized void putAttachment(Object key, Object value) {
+        if (attachments == null) {
+            attachments = new HashMap<Object, Object>();
+        }
+        attachments.put(key, value);
+    }
+
+    public synchronized Object getAttachment(Object key) {
+        return attachments == null ? null : attachments.get(key);
+    }
+
+    /**
+     * Reduces a resource to its endpoint template by replacing Octopus ids and numeric
+     * segments with a placeholder.
+     * Example: api/projects/Projects-21/releases becomes api/projects/{id}/releases
+     * @param resource the resource (omitting the host portion and query string)
+     * @return the endpoint template
+     */
+    public static String toEndpointTemplate(String resource) {
+        if (resource == null) {
+            return "";
+        }
+        String template = resource;
+        int queryStart = template.indexOf('?');
+        if (queryStart >= 0) {
+            template = template.substring(0, queryStart);
+        }
+        template = RESOURCE_ID_PATTERN.matcher(template).replaceAll(ID_PLACEHOLDER);
+        template = NUMERIC_SEGMENT_PATTERN.matcher(template).replaceAll(ID_PLACEHOLDER);
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return "ApiCall [method=" + method + ", endpointTemplate=" + endpointTemplate + ", responseCode=" + responseCode + ", responseBytes=" + responseBytes + "]";
+    }
+}
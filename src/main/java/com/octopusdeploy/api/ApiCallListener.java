@@ -0,0 +1,20 @@
+package com.octopusdeploy.api;
+
+/**
+ * Receives notifications for every request made by an AuthenticatedWebClient.
+ * Both methods are invoked on the thread making the request, so implementations
+ * must be quick and must not throw.
+ */
+public interface ApiCallListener {
+    /**
+     * Called before the connection to the Octopus server is opened.
+     * @param call the call being made
+     */
+    void callStarted(ApiCall call);
+
+    /**
+     * Called once the response has been read, or the request has failed.
+     * @param call the finished call, with its response code, size and failure (if any)
+     */
+    void callFinished(ApiCall call);
+}
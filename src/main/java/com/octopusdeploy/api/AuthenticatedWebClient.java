@@ -4,6 +4,9 @@ import java.io.*;
 import java.net.*;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -15,9 +18,17 @@ public class AuthenticatedWebClient {
     private static final String GET = "GET";
     private static final String POST = "POST";
     private static final String OCTOPUS_API_KEY_HEADER = "X-Octopus-ApiKey";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String RANGE_HEADER = "Range";
+    private static final String CRLF = "\r\n";
+    private static final Logger LOGGER = Logger.getLogger(AuthenticatedWebClient.class.getName());
+
+    private static final List<ApiCallListener> listeners = new CopyOnWriteArrayList<ApiCallListener>();
     
     private final String hostUrl;
     private final String apiKey;
+    private volatile boolean rangeIgnored;
     
     /**
      * Create a new instance.
@@ -45,16 +56,75 @@ public class AuthenticatedWebClient {
         {
             throw new IllegalArgumentException("Data to post can not be null");
         }
-        URLConnection connection = getConnection(POST, resource, null);
-        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");        
-        connection.setRequestProperty("Content-Length", Integer.toString(data.length));
-        connection.setDoOutput(true);
-        connection.connect();
-        DataOutputStream dataOutputStream = new DataOutputStream(connection.getOutputStream());
-        dataOutputStream.write(data);
-        dataOutputStream.flush();
-        dataOutputStream.close();
-        return getResponse(connection);
+        ApiCall call = startCall(POST, resource);
+        try {
+            URLConnection connection = getConnection(POST, resource, null);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");        
+            connection.setRequestProperty("Content-Length", Integer.toString(data.length));
+            connection.setDoOutput(true);
+            connection.connect();
+            DataOutputStream dataOutputStream = new DataOutputStream(connection.getOutputStream());
+            dataOutputStream.write(data);
+            dataOutputStream.flush();
+            dataOutputStream.close();
+            return getResponse(connection, call);
+        } catch (IOException ex) {
+            call.failed(ex);
+            throw ex;
+        } finally {
+            finishCall(call);
+        }
+    }
+    
+    /**
+     * Executes a multipart/form-data post of a single file against the resource provided.
+     * The content is streamed straight to the connection in fixed-length mode, so it is never held in memory.
+     * @param resource the URL to the resource (omitting the host portion)
+     * @param fileName the file name to send
+     * @param content the file content; it is read to the end but not closed
+     * @param length the exact number of bytes in content
+     * @return JSON blob representing the response from the server.
+     * @throws IOException if there are errors establishing a web connection OR reading or writing the content
+     */
+    public WebResponse postFile(String resource, String fileName, InputStream content, long length) throws IOException {
+        String boundary = "----OctopusBoundary" + UUID.randomUUID().toString().replace("-", "");
+        byte[] head = ("--" + boundary + CRLF
+                + "Content-Disposition: form-data; name=\"fileToUpload\"; filename=\"" + fileName.replace("\"", "") + "\"" + CRLF
+                + "Content-Type: application/octet-stream" + CRLF + CRLF).getBytes(UTF8);
+        byte[] tail = (CRLF + "--" + boundary + "--" + CRLF).getBytes(UTF8);
+        ApiCall call = startCall(POST, resource);
+        try {
+            URLConnection connection = getConnection(POST, resource, null);
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            connection.setDoOutput(true);
+            if (connection instanceof HttpURLConnection) {
+                ((HttpURLConnection)connection).setFixedLengthStreamingMode(head.length + length + tail.length);
+            }
+            connection.connect();
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(head);
+                byte[] buffer = new byte[64 * 1024];
+                long remaining = length;
+                int read;
+                while (remaining > 0 && (read = content.read(buffer, 0, (int)Math.min(buffer.length, remaining))) != -1) {
+                    out.write(buffer, 0, read);
+                    remaining -= read;
+                }
+                if (remaining > 0) {
+                    throw new EOFException(String.format("%s ended %d bytes early", fileName, remaining));
+                }
+                out.write(tail);
+            } finally {
+                out.close();
+            }
+            return getResponse(connection, call);
+        } catch (IOException ex) {
+            call.failed(ex);
+            throw ex;
+        } finally {
+            finishCall(call);
+        }
     }
     
     /**
@@ -75,9 +145,163 @@ public class AuthenticatedWebClient {
      * @throws IOException if establishing the web connection fails
      */
     public WebResponse get(String resource, Map<String, String> queryParameters) throws IOException {
-        String encodedParameterString = mapToQueryParameters(queryParameters);
-        URLConnection connection = getConnection(GET, resource, encodedParameterString);
-        return getResponse(connection);
+        ApiCall call = startCall(GET, resource);
+        try {
+            String encodedParameterString = mapToQueryParameters(queryParameters);
+            URLConnection connection = getConnection(GET, resource, encodedParameterString);
+            return getResponse(connection, call);
+        } catch (IOException ex) {
+            call.failed(ex);
+            throw ex;
+        } finally {
+            finishCall(call);
+        }
+    }
+    
+    /**
+     * Executes a conditional get request against the resource provided.
+     * When the resource still has the given entity tag the server answers 304 Not Modified with no content.
+     * @param resource the URL to the resource (omitting the host portion)
+     * @param eTag the entity tag of the copy already held, or null for an unconditional get
+     * @return JSON blob representing the response from the server, or a not modified response.
+     * @throws IOException if establishing the web connection fails
+     */
+    public WebResponse getIfNoneMatch(String resource, String eTag) throws IOException {
+        ApiCall call = startCall(GET, resource);
+        try {
+            URLConnection connection = getConnection(GET, resource, null);
+            if (eTag != null) {
+                connection.setRequestProperty(IF_NONE_MATCH_HEADER, eTag);
+            }
+            return getResponse(connection, call);
+        } catch (IOException ex) {
+            call.failed(ex);
+            throw ex;
+        } finally {
+            finishCall(call);
+        }
+    }
+    
+    /**
+     * Whether the server has answered a Range request with the whole resource, so that every
+     * {@link #getRange(String, long, int)} costs the bytes before its offset as well.
+     * @return true once a Range request got a 200 response
+     */
+    public boolean isRangeIgnored() {
+        return rangeIgnored;
+    }
+
+    /**
+     * Executes a get request for part of a resource, starting at offset and at most maxBytes long.
+     * The range is asked for with a Range header. When the server ignores it and sends the whole resource,
+     * the bytes before offset are skipped as they arrive and the connection is dropped after maxBytes,
+     * so no more than offset + maxBytes bytes are ever read. Such a server is remembered, see {@link #isRangeIgnored()}.
+     * @param resource the URL to the resource (omitting the host portion)
+     * @param offset the first byte to return
+     * @param maxBytes the most bytes to return
+     * @return the bytes from offset, fewer than maxBytes only at the end of the resource
+     * @throws IOException if establishing the web connection fails or the server returns an error response code
+     */
+    public byte[] getRange(String resource, long offset, int maxBytes) throws IOException {
+        ApiCall call = startCall(GET, resource);
+        try {
+            URLConnection connection = getConnection(GET, resource, null);
+            connection.setRequestProperty(RANGE_HEADER, String.format("bytes=%d-%d", offset, offset + maxBytes - 1));
+            connection.connect();
+            int responseCode = -1;
+            if (connection instanceof HttpURLConnection) {
+                responseCode = ((HttpURLConnection)connection).getResponseCode();
+                if (responseCode == 416) { // nothing past offset yet
+                    call.completed(responseCode, 0);
+                    return new byte[0];
+                }
+                if (isErrorCode(responseCode)) {
+                    call.completed(responseCode, 0);
+                    throw new IOException(String.format("Code %s - %s", responseCode, ((HttpURLConnection)connection).getResponseMessage()));
+                }
+            }
+            CountingInputStream in = new CountingInputStream(connection.getInputStream());
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            try {
+                if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+                    if (responseCode == HttpURLConnection.HTTP_OK) {
+                        rangeIgnored = true;
+                    }
+                    long toSkip = offset;
+                    while (toSkip > 0) {
+                        long skipped = in.skip(toSkip);
+                        if (skipped <= 0) {
+                            if (in.read() == -1) {
+                                break;
+                            }
+                            skipped = 1;
+                        }
+                        toSkip -= skipped;
+                    }
+                }
+                byte[] buffer = new byte[8192];
+                int read;
+                while (content.size() < maxBytes && (read = in.read(buffer, 0, Math.min(buffer.length, maxBytes - content.size()))) != -1) {
+                    content.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+                if (connection instanceof HttpURLConnection) {
+                    ((HttpURLConnection)connection).disconnect();
+                }
+            }
+            call.completed(responseCode, in.getCount());
+            return content.toByteArray();
+        } catch (IOException ex) {
+            if (!call.isFinished()) {
+                call.failed(ex);
+            }
+            throw ex;
+        } finally {
+            finishCall(call);
+        }
+    }
+    
+    /**
+     * Registers a listener that is notified of every request made by any client instance.
+     * @param listener the listener to add
+     */
+    public static void addApiCallListener(ApiCallListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Removes a listener added with addApiCallListener.
+     * @param listener the listener to remove
+     */
+    public static void removeApiCallListener(ApiCallListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private ApiCall startCall(String method, String resource) {
+        ApiCall call = new ApiCall(method, resource);
+        for (ApiCallListener listener : listeners) {
+            try {
+                listener.callStarted(call);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "ApiCallListener failed on call start", ex);
+            }
+        }
+        return call;
+    }
+    
+    private void finishCall(ApiCall call) {
+        if (!call.isFinished()) {
+            // the request was abandoned by an unchecked exception
+            call.failed(new IllegalStateException("No response received for " + call.getResource()));
+        }
+        for (ApiCallListener listener : listeners) {
+            try {
+                listener.callFinished(call);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "ApiCallListener failed on call finish", ex);
+            }
+        }
     }
     
     /**
@@ -133,11 +357,12 @@ public class AuthenticatedWebClient {
     /**
      * Use the connection to read a response from the server.
      * @param connection an instantiated URLConnection object.
+     * @param call the call to record the response code and size on.
      * @return JSON blob representing the response from the server.
      * @throws IOException if there is an issue when connecting or reading the response
      * @throws IllegalArgumentException if the connection is null
      */
-    private WebResponse getResponse(URLConnection connection) throws IOException, IllegalArgumentException  {
+    private WebResponse getResponse(URLConnection connection, ApiCall call) throws IOException, IllegalArgumentException  {
         int responseCode = -1;
         if (connection == null)
         {
@@ -155,7 +380,8 @@ public class AuthenticatedWebClient {
         if (streamToRead == null) {
             streamToRead = connection.getInputStream();
         }
-        BufferedReader reader = new BufferedReader(new InputStreamReader(streamToRead, Charset.forName(UTF8)));
+        CountingInputStream countingStream = new CountingInputStream(streamToRead);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(countingStream, Charset.forName(UTF8)));
         String inputLine;
         StringBuilder response = new StringBuilder();
 
@@ -166,7 +392,8 @@ public class AuthenticatedWebClient {
         if (connection instanceof HttpURLConnection) {
             ((HttpURLConnection)connection).disconnect();
         }
-        return new WebResponse(responseCode, response.toString());
+        call.completed(responseCode, countingStream.getCount());
+        return new WebResponse(responseCode, response.toString(), connection.getHeaderField(ETAG_HEADER));
     }
     
    
@@ -179,6 +406,46 @@ public class AuthenticatedWebClient {
        return code >= 400;
    }
     
+    /**
+     * Counts the bytes read through it, so response sizes can be reported without buffering.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+    
     /**
      * A web response code (HTTP Response code) and content from the web request.
      */
@@ -200,6 +467,23 @@ public class AuthenticatedWebClient {
             return AuthenticatedWebClient.isErrorCode(code);
         }
         
+        /**
+         * Returns true if a conditional request found the resource unchanged.
+         * @return true or false
+         */
+        public boolean isNotModified() {
+            return code == HttpURLConnection.HTTP_NOT_MODIFIED;
+        }
+        
+        private final String eTag;
+        /**
+         * The entity tag of the returned resource, if the server sent one.
+         * @return the ETag header value, or null
+         */
+        public String getETag() {
+            return eTag;
+        }
+        
         private final String content;
         /**
          * Content for the web response, if any.
@@ -209,9 +493,10 @@ public class AuthenticatedWebClient {
             return content;
         }
         
-        private WebResponse(int code, String content) {
+        private WebResponse(int code, String content, String eTag) {
             this.code = code;
             this.content = content;
+            this.eTag = eTag;
         }   
     }
 }
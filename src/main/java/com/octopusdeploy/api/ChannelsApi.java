@@ -4,6 +4,7 @@ import com.octopusdeploy.api.data.Channel;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
 
@@ -72,4 +73,21 @@ public class ChannelsApi {
         }
         return null;
     }
+
+    /**
+     * Whether a channel has version rules, which limit the package versions its releases may use.
+     * @param channelId the channel id
+     * @return true if the channel has at least one version rule
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public boolean hasVersionRules(String channelId) throws IllegalArgumentException, IOException {
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/channels/" + channelId);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        JSONArray rules = json.optJSONArray("Rules");
+        return rules != null && !rules.isEmpty();
+    }
 }
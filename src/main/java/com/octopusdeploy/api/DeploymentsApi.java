@@ -10,14 +10,18 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
 import org.apache.commons.lang.StringUtils;
 
 public class DeploymentsApi {
     private final static String UTF8 = "UTF-8";
+    private final static int RECENT_DEPLOYMENTS = 5;
+    private final static String[] IN_FLIGHT_TASK_STATES = {"Executing", "Queued"};
     private final AuthenticatedWebClient webClient;
 
     public DeploymentsApi(AuthenticatedWebClient webClient) {
@@ -73,6 +77,62 @@ public class DeploymentsApi {
         return response.getContent();
     }
     
+    /**
+     * Find a deployment of a release to an environment (and tenant) whose task has not completed yet.
+     * The server is asked for the few most recent executing, then queued, deployments of the project to the
+     * environment and tenant. The task of the matching deployment is checked once more, in case the server
+     * ignores the taskState filter.
+     * @param projectId Project Id from Octopus.
+     * @param releaseId Release Id from Octopus.
+     * @param environmentId Environment Id from Octopus.
+     * @param tenantId Tenant Id from Octopus, or null for an untenanted deployment.
+     * @return the deployment, in the same form as executeDeployment returns it, or null if there is none in flight.
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public String getInFlightDeployment(String projectId, String releaseId, String environmentId, String tenantId) throws IllegalArgumentException, IOException {
+        for (String taskState : IN_FLIGHT_TASK_STATES) {
+            String deployment = getDeploymentInTaskState(projectId, releaseId, environmentId, tenantId, taskState);
+            if (deployment != null) {
+                return deployment;
+            }
+        }
+        return null;
+    }
+
+    private String getDeploymentInTaskState(String projectId, String releaseId, String environmentId, String tenantId,
+            String taskState) throws IllegalArgumentException, IOException {
+        Map<String, String> query = new HashMap<String, String>();
+        query.put("projects", projectId);
+        query.put("environments", environmentId);
+        if (StringUtils.isNotEmpty(tenantId)) {
+            query.put("tenants", tenantId);
+        }
+        query.put("taskState", taskState);
+        query.put("take", Integer.toString(RECENT_DEPLOYMENTS));
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/deployments", query);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        for (Object obj : json.getJSONArray("Items")) {
+            JSONObject deployment = (JSONObject)obj;
+            Object tenant = deployment.opt("TenantId");
+            String deploymentTenantId = tenant == null || tenant instanceof JSONNull ? null : StringUtils.defaultIfEmpty(tenant.toString(), null);
+            if (!releaseId.equals(deployment.optString("ReleaseId"))
+                    || !StringUtils.equals(StringUtils.defaultIfEmpty(tenantId, null), deploymentTenantId)) {
+                continue;
+            }
+            AuthenticatedWebClient.WebResponse taskResponse = webClient.get("api/tasks/" + deployment.getString("TaskId"));
+            if (taskResponse.isErrorCode()) {
+                throw new IOException(String.format("Code %s - %n%s", taskResponse.getCode(), taskResponse.getContent()));
+            }
+            JSONObject task = (JSONObject)JSONSerializer.toJSON(taskResponse.getContent());
+            return task.getBoolean("IsCompleted") ? null : deployment.toString();
+        }
+        return null;
+    }
+
     /**
      * Return a representation of a deployment process for a given project.
      * @param projectId the id of the project to get the process for.
@@ -124,7 +184,25 @@ public class DeploymentsApi {
      * @throws IOException When the AuthenticatedWebClient receives and error response code
      */
     public DeploymentProcessTemplate getDeploymentProcessTemplateForProject(String projectId) throws IllegalArgumentException, IOException {
-        AuthenticatedWebClient.WebResponse response = webClient.get("api/deploymentprocesses/deploymentprocess-" + projectId + "/template");
+        return getDeploymentProcessTemplateForProject(projectId, null);
+    }
+
+    /**
+     * Return a representation of a deployment process for a given project, revalidating a cached copy.
+     * If the cached copy has an ETag and the template has not changed since, the server sends no content
+     * and the cached copy is returned.
+     * @param projectId project id
+     * @param cached a previously fetched template for the project, or null
+     * @return DeploymentProcessTemplate deployment process template
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public DeploymentProcessTemplate getDeploymentProcessTemplateForProject(String projectId, DeploymentProcessTemplate cached) throws IllegalArgumentException, IOException {
+        String eTag = cached == null ? null : cached.getETag();
+        AuthenticatedWebClient.WebResponse response = webClient.getIfNoneMatch("api/deploymentprocesses/deploymentprocess-" + projectId + "/template", eTag);
+        if (response.isNotModified() && cached != null) {
+            return cached;
+        }
         if (response.isErrorCode()) {
             throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
         }
@@ -139,10 +217,11 @@ public class DeploymentsApi {
             String packageId = pkgJsonObj.getString("PackageId");
             String packageReferenceName = pkgJsonObj.getString("PackageReferenceName");
             String version = pkgJsonObj.getString("VersionSelectedLastRelease");
-            packages.add(new SelectedPackage(name, packageId, packageReferenceName, version));
+            String feedId = pkgJsonObj.optString("FeedId", null);
+            packages.add(new SelectedPackage(name, packageId, packageReferenceName, version, feedId));
         }
 
-        DeploymentProcessTemplate template = new DeploymentProcessTemplate(deploymentId, projectId, packages);
+        DeploymentProcessTemplate template = new DeploymentProcessTemplate(deploymentId, projectId, packages, response.getETag());
         return template;
     }
 }
@@ -0,0 +1,115 @@
+package com.octopusdeploy.api;
+
+import com.octopusdeploy.api.data.Event;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Methods for the audit event feed aspects of the Octopus API
+ */
+public class EventsApi {
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 10;
+    private static final String EVENT_ID_PREFIX = "Events-";
+
+    private final AuthenticatedWebClient webClient;
+
+    public EventsApi(AuthenticatedWebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    /**
+     * Get the sequence number of the newest event, to start following the feed from.
+     * @return the newest event's sequence number, or 0 if there are no events
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public long getLatestAutoId() throws IllegalArgumentException, IOException {
+        Map<String, String> query = new HashMap<String, String>();
+        query.put("take", "1");
+        JSONArray items = getPage(query).getJSONArray("Items");
+        if (items.isEmpty()) {
+            return 0;
+        }
+        return toEvent(items.getJSONObject(0)).getAutoId();
+    }
+
+    /**
+     * Get the events of some categories that happened after a given event, in pages of 100.
+     * Events come newest first, so paging stops at the first event already seen, which also bounds the work
+     * on servers that ignore fromAutoId. At most 10 pages are read; the oldest events of a larger burst are skipped.
+     * @param afterAutoId the sequence number of the last event already seen
+     * @param categories the event categories to return, ex. DeploymentSucceeded
+     * @return the newer events, newest first
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public List<Event> getEventsAfter(long afterAutoId, String... categories) throws IllegalArgumentException, IOException {
+        List<Event> events = new ArrayList<Event>();
+        int skip = 0;
+        for (int page = 0; page < MAX_PAGES; page++) {
+            Map<String, String> query = new HashMap<String, String>();
+            query.put("fromAutoId", Long.toString(afterAutoId + 1));
+            query.put("eventCategories", StringUtils.join(categories, ","));
+            query.put("take", Integer.toString(PAGE_SIZE));
+            query.put("skip", Integer.toString(skip));
+            JSONObject json = getPage(query);
+            JSONArray items = json.getJSONArray("Items");
+            for (Object obj : items) {
+                Event event = toEvent((JSONObject)obj);
+                if (event.getAutoId() == 0) {
+                    continue; // no sequence number to order it by
+                }
+                if (event.getAutoId() <= afterAutoId) {
+                    return events;
+                }
+                events.add(event);
+            }
+            skip += items.size();
+            if (items.isEmpty() || skip >= json.optInt("TotalResults", 0)) {
+                break;
+            }
+        }
+        return events;
+    }
+
+    private JSONObject getPage(Map<String, String> query) throws IOException {
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/events", query);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        return (JSONObject)JSONSerializer.toJSON(response.getContent());
+    }
+
+    /**
+     * Event ids are Events-{sequence number}; newer servers also return the number as AutoId.
+     */
+    private static Event toEvent(JSONObject json) {
+        String id = json.getString("Id");
+        long autoId = json.optLong("AutoId", 0);
+        if (autoId == 0 && id.startsWith(EVENT_ID_PREFIX)) {
+            try {
+                autoId = Long.parseLong(id.substring(EVENT_ID_PREFIX.length()));
+            } catch (NumberFormatException ex) {
+                autoId = 0;
+            }
+        }
+        Set<String> related = new HashSet<String>();
+        JSONArray relatedIds = json.optJSONArray("RelatedDocumentIds");
+        if (relatedIds != null) {
+            for (Object relatedId : relatedIds) {
+                related.add(relatedId.toString());
+            }
+        }
+        return new Event(id, autoId, json.optString("Category"), related);
+    }
+}
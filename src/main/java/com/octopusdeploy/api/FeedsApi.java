@@ -0,0 +1,121 @@
+package com.octopusdeploy.api;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+/**
+ * Methods for the package feed aspects of the Octopus API
+ */
+public class FeedsApi {
+    /**
+     * The id of the Octopus built-in package repository.
+     */
+    public static final String BUILT_IN_FEED_ID = "feeds-builtin";
+    private static final int PAGE_SIZE = 1000;
+    private static final int VERSIONS_PAGE_SIZE = 30;
+
+    private final AuthenticatedWebClient webClient;
+
+    public FeedsApi(AuthenticatedWebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    /**
+     * Find the latest (non pre-release) version of several packages in one feed.
+     * Package ids are matched ignoring case. The built-in feed is asked for the latest version of its packages
+     * in one page of 1000; packages not on that page, or whose latest version there is a pre-release, are then
+     * looked up on their own, so a missing package never costs more than one request. External feeds have no
+     * batch query, so each package is looked up on its own.
+     * @param feedId the feed id, ex. feeds-builtin
+     * @param packageIds the package ids to resolve
+     * @return the latest version of each package that was found, by package id as given
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public Map<String, String> getLatestVersions(String feedId, Collection<String> packageIds) throws IllegalArgumentException, IOException {
+        Map<String, String> wanted = new HashMap<String, String>();
+        for (String packageId : packageIds) {
+            wanted.put(packageId.toLowerCase(Locale.ROOT), packageId);
+        }
+        Map<String, String> versions = new HashMap<String, String>();
+        if (BUILT_IN_FEED_ID.equals(feedId)) {
+            addLatestBuiltInVersions(wanted, versions);
+        }
+        for (String packageId : wanted.values()) {
+            String version = getLatestVersion(feedId, packageId);
+            if (version != null) {
+                versions.put(packageId, version);
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Find the latest (non pre-release) version of a package in a feed.
+     * @param feedId the feed id
+     * @param packageId the package id
+     * @return the latest version, or null if the feed has no such package or only pre-releases of it
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public String getLatestVersion(String feedId, String packageId) throws IllegalArgumentException, IOException {
+        Map<String, String> query = new HashMap<String, String>();
+        query.put("packageId", packageId);
+        query.put("includePreRelease", "false");
+        query.put("take", Integer.toString(VERSIONS_PAGE_SIZE));
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/feeds/" + feedId + "/packages/versions", query);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        // Versions come newest first; feeds that ignore includePreRelease still list pre-releases
+        for (Object obj : json.getJSONArray("Items")) {
+            String version = ((JSONObject)obj).getString("Version");
+            if (!isPreRelease(version)) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a version is a pre-release, which by semantic versioning has a "-" tag before any "+" build metadata.
+     * @param version the version
+     * @return true for ex. 1.2.0-beta1, false for 1.2.0 or 1.2.0+build-5
+     */
+    static boolean isPreRelease(String version) {
+        int metadata = version.indexOf('+');
+        return (metadata < 0 ? version : version.substring(0, metadata)).indexOf('-') >= 0;
+    }
+
+    /**
+     * Take the packages found on the first page of the latest built-in package versions out of wanted.
+     */
+    private void addLatestBuiltInVersions(Map<String, String> wanted, Map<String, String> versions) throws IllegalArgumentException, IOException {
+        Map<String, String> query = new HashMap<String, String>();
+        query.put("latest", "true");
+        query.put("take", Integer.toString(PAGE_SIZE));
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/packages", query);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        for (Object obj : json.getJSONArray("Items")) {
+            JSONObject jsonObj = (JSONObject)obj;
+            String version = jsonObj.getString("Version");
+            if (isPreRelease(version)) {
+                continue;
+            }
+            String packageId = wanted.remove(jsonObj.getString("PackageId").toLowerCase(Locale.ROOT));
+            if (packageId != null) {
+                versions.put(packageId, version);
+            }
+        }
+    }
+}
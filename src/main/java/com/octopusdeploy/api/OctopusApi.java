@@ -42,6 +42,21 @@ public class OctopusApi {
     public TasksApi getTasksApi() {
         return tasksApi;
     }
+
+    private final FeedsApi feedsApi;
+    public FeedsApi getFeedsApi() {
+        return feedsApi;
+    }
+
+    private final PackagesApi packagesApi;
+    public PackagesApi getPackagesApi() {
+        return packagesApi;
+    }
+
+    private final EventsApi eventsApi;
+    public EventsApi getEventsApi() {
+        return eventsApi;
+    }
     
     public OctopusApi(String octopusHost, String apiKey) {
         webClient = new AuthenticatedWebClient(octopusHost, apiKey);
@@ -53,5 +68,8 @@ public class OctopusApi {
         releasesApi = new ReleasesApi(webClient);
         variablesApi = new VariablesApi(webClient);
         tasksApi = new TasksApi(webClient);
+        feedsApi = new FeedsApi(webClient);
+        packagesApi = new PackagesApi(webClient);
+        eventsApi = new EventsApi(webClient);
     }
 }
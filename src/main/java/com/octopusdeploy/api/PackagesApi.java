@@ -0,0 +1,92 @@
+package com.octopusdeploy.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Methods for the built-in package repository aspects of the Octopus API
+ */
+public class PackagesApi {
+    private static final String[] PACKAGE_EXTENSIONS = {".nupkg", ".tar.gz", ".tar.bz2", ".tgz", ".tar", ".zip", ".jar", ".war", ".ear"};
+    private static final String BUILT_IN_ID_PREFIX = "packages-";
+
+    private final AuthenticatedWebClient webClient;
+
+    public PackagesApi(AuthenticatedWebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    /**
+     * Push a package to the built-in package repository.
+     * The content is streamed to Octopus as it is read.
+     * @param fileName the package file name, ex. MyApp.1.0.0.zip, from which Octopus takes the package id and version
+     * @param content the package content; it is read to the end but not closed
+     * @param length the exact size of the package in bytes
+     * @param replaceExisting whether to overwrite a package with the same id and version
+     * @return the id of the package in the repository, ex. packages-MyApp.1.0.0
+     * @throws IllegalArgumentException when Octopus rejects the package (a 4xx response), so sending it again will not help
+     * @throws IOException When the upload is cut off or the AuthenticatedWebClient receives a server error response code
+     */
+    public String uploadPackage(String fileName, InputStream content, long length, boolean replaceExisting) throws IllegalArgumentException, IOException {
+        AuthenticatedWebClient.WebResponse response = webClient.postFile("api/packages/raw?replace=" + replaceExisting, fileName, content, length);
+        if (response.getCode() >= 400 && response.getCode() < 500) {
+            throw new IllegalArgumentException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        return json.optString("Id", fileName);
+    }
+
+    /**
+     * Get the content hashes of packages in the built-in package repository, in one request.
+     * @param ids built-in package ids, see toBuiltInPackageId
+     * @return the SHA-1 hash of each package that exists, by id
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public Map<String, String> getPackageHashes(Collection<String> ids) throws IllegalArgumentException, IOException {
+        Map<String, String> hashes = new HashMap<String, String>();
+        if (ids.isEmpty()) {
+            return hashes;
+        }
+        Map<String, String> query = new HashMap<String, String>();
+        query.put("ids", StringUtils.join(ids, ","));
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/packages/bulk", query);
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        JSONArray json = (JSONArray)JSONSerializer.toJSON(response.getContent());
+        for (Object obj : json) {
+            JSONObject jsonObj = (JSONObject)obj;
+            String hash = jsonObj.optString("Hash", null);
+            if (hash != null) {
+                hashes.put(jsonObj.getString("Id"), hash);
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * The id that the built-in package repository gives a package file, ex. MyApp.1.0.0.zip is packages-MyApp.1.0.0
+     * @param fileName the package file name
+     * @return the built-in package id
+     */
+    public static String toBuiltInPackageId(String fileName) {
+        String lower = fileName.toLowerCase();
+        for (String extension : PACKAGE_EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return BUILT_IN_ID_PREFIX + fileName.substring(0, fileName.length() - extension.length());
+            }
+        }
+        return BUILT_IN_ID_PREFIX + fileName;
+    }
+}
@@ -2,13 +2,17 @@ package com.octopusdeploy.api;
 
 import com.octopusdeploy.api.data.Project;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
 
 public class ProjectsApi {
+    private static final int PAGE_SIZE = 1000;
+
     private final AuthenticatedWebClient webClient;
 
     public ProjectsApi(AuthenticatedWebClient webClient) {
@@ -68,4 +72,52 @@ public class ProjectsApi {
         }
         return null;
     }
+
+    /**
+     * Loads the projects in a project group, selected by name (exact match, including case).
+     * @param groupName name of the project group
+     * @return the projects in the group, or null if no such project group exists
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public Set<Project> getProjectsInGroup(String groupName) throws IllegalArgumentException, IOException {
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/projectgroups/all");
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        String groupId = null;
+        for (Object obj : (JSONArray)JSONSerializer.toJSON(response.getContent())) {
+            JSONObject jsonObj = (JSONObject)obj;
+            if (groupName.equals(jsonObj.getString("Name"))) {
+                groupId = jsonObj.getString("Id");
+                break;
+            }
+        }
+        if (groupId == null) {
+            return null;
+        }
+
+        Set<Project> projects = new HashSet<Project>();
+        int skip = 0;
+        while (true) {
+            Map<String, String> query = new HashMap<String, String>();
+            query.put("take", Integer.toString(PAGE_SIZE));
+            query.put("skip", Integer.toString(skip));
+            response = webClient.get("api/projectgroups/" + groupId + "/projects", query);
+            if (response.isErrorCode()) {
+                throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+            }
+            JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+            JSONArray items = json.getJSONArray("Items");
+            for (Object obj : items) {
+                JSONObject jsonObj = (JSONObject)obj;
+                projects.add(new Project(jsonObj.getString("Id"), jsonObj.getString("Name")));
+            }
+            skip += items.size();
+            if (items.isEmpty() || skip >= json.optInt("TotalResults", 0)) {
+                break;
+            }
+        }
+        return projects;
+    }
 }
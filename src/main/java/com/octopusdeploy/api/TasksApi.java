@@ -2,10 +2,18 @@ package com.octopusdeploy.api;
 
 import com.octopusdeploy.api.data.Task;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
+import org.apache.commons.lang.StringUtils;
 
 public class TasksApi {
+    private static final int MAX_IDS_PER_REQUEST = 100;
+
     private final AuthenticatedWebClient webClient;
 
     public TasksApi(AuthenticatedWebClient webClient) {
@@ -25,6 +33,38 @@ public class TasksApi {
             throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
         }
         JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+        return toTask(json);
+    }
+
+    /**
+     * Retrieves many tasks at once, asking for up to 100 in each request.
+     * @param taskIds task ids
+     * @return the tasks that were found, by id
+     * @throws IllegalArgumentException  when the web client receives a bad parameter
+     * @throws IOException  When the AuthenticatedWebClient receives and error response code
+     */
+    public Map<String, Task> getTasks(Collection<String> taskIds) throws IllegalArgumentException, IOException {
+        Map<String, Task> tasks = new HashMap<String, Task>();
+        List<String> ids = new ArrayList<String>(taskIds);
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_REQUEST) {
+            List<String> batch = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_REQUEST));
+            Map<String, String> query = new HashMap<String, String>();
+            query.put("ids", StringUtils.join(batch, ","));
+            query.put("take", String.valueOf(batch.size()));
+            AuthenticatedWebClient.WebResponse response = webClient.get("api/tasks", query);
+            if (response.isErrorCode()) {
+                throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+            }
+            JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
+            for (Object obj : json.getJSONArray("Items")) {
+                Task task = toTask((JSONObject)obj);
+                tasks.put(task.getId(), task);
+            }
+        }
+        return tasks;
+    }
+
+    private static Task toTask(JSONObject json) {
         String id = json.getString("Id");
         String name = json.getString("Name");
         String description = json.getString("Description");
@@ -32,4 +72,24 @@ public class TasksApi {
         boolean isCompleted = json.getBoolean("IsCompleted");
         return new Task(id, name, description, state, isCompleted);
     }
+
+    /**
+     * Retrieves part of the raw log of a task, starting at a byte offset.
+     * @param taskId task id
+     * @param offset the number of bytes of the log already read
+     * @param maxBytes the most bytes to return
+     * @return the next bytes of the UTF-8 log, empty when nothing has been written past offset yet
+     * @throws IOException  When the AuthenticatedWebClient receives and error response code
+     */
+    public byte[] getRawLog(String taskId, long offset, int maxBytes) throws IOException {
+        return webClient.getRange("api/tasks/" + taskId + "/raw", offset, maxBytes);
+    }
+
+    /**
+     * Whether the server ignores the byte range of raw log requests and sends the whole log each time.
+     * @return true once a raw log (or other range) request has been answered with the whole resource
+     */
+    public boolean isRawLogRangeIgnored() {
+        return webClient.isRangeIgnored();
+    }
 }
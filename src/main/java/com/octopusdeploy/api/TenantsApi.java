@@ -2,7 +2,9 @@ package com.octopusdeploy.api;
 
 import com.octopusdeploy.api.data.Tenant;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
@@ -27,16 +29,8 @@ public class TenantsApi {
      */
     public Set<Tenant> getAllTenants() throws IllegalArgumentException, IOException {
         HashSet<Tenant> tenants = new HashSet<Tenant>();
-        AuthenticatedWebClient.WebResponse response = webClient.get("api/tenants/all");
-        if (response.isErrorCode()) {
-            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
-        }
-        JSONArray json = (JSONArray)JSONSerializer.toJSON(response.getContent());
-        for (Object obj : json) {
-            JSONObject jsonObj = (JSONObject)obj;
-            String id = jsonObj.getString("Id");
-            String name = jsonObj.getString("Name");
-            tenants.add(new Tenant(id, name));
+        for (Object obj : getAllTenantsJson()) {
+            tenants.add(toTenant((JSONObject)obj));
         }
         return tenants;
     }
@@ -57,18 +51,41 @@ public class TenantsApi {
      * Get the Tenant with the given name if it exists, return null otherwise.
      * @param name The name of the Tenant to find.
      * @param ignoreCase when true uses equalsIgnoreCase in the name check
-     * @return The Environment with that name.
+     * Tenants are matched in the response as it is read, without building a set of all tenants.
+     * @return The Tenant with that name.
      * @throws IllegalArgumentException when the web client receives a bad parameter
      * @throws IOException When the AuthenticatedWebClient receives and error response code
      */
     public Tenant getTenantByName(String name, boolean ignoreCase) throws IllegalArgumentException, IOException {
-        Set<Tenant> tenants = getAllTenants();
-        for (Tenant tenant : tenants) {
-            if ((ignoreCase && name.equalsIgnoreCase(tenant.getName())) ||
-               (!ignoreCase && name.equals(tenant.getName()))) {
-                return tenant;
+        for (Object obj : getAllTenantsJson()) {
+            JSONObject jsonObj = (JSONObject)obj;
+            String tenantName = jsonObj.getString("Name");
+            if ((ignoreCase && name.equalsIgnoreCase(tenantName)) ||
+               (!ignoreCase && name.equals(tenantName))) {
+                return toTenant(jsonObj);
             }
         }
         return null;
     }
+
+    private JSONArray getAllTenantsJson() throws IllegalArgumentException, IOException {
+        AuthenticatedWebClient.WebResponse response = webClient.get("api/tenants/all");
+        if (response.isErrorCode()) {
+            throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
+        }
+        return (JSONArray)JSONSerializer.toJSON(response.getContent());
+    }
+
+    private static Tenant toTenant(JSONObject jsonObj) {
+        String id = jsonObj.getString("Id");
+        String name = jsonObj.getString("Name");
+        List<String> tags = new ArrayList<String>();
+        JSONArray tenantTags = jsonObj.optJSONArray("TenantTags");
+        if (tenantTags != null) {
+            for (Object tag : tenantTags) {
+                tags.add(tag.toString());
+            }
+        }
+        return new Tenant(id, name, tags);
+    }
 }
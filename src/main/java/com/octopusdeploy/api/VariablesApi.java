@@ -2,9 +2,12 @@ package com.octopusdeploy.api;
 
 import com.octopusdeploy.api.data.Variable;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONSerializer;
 import org.apache.commons.lang.StringUtils;
@@ -17,40 +20,74 @@ public class VariablesApi {
     }
 
     /**
-     * Get the variables for a combination of release and environment, return null otherwise.
+     * Get the variables to override for a combination of release and environment.
+     * Only prompted variables that have a value in the entry properties are returned.
      * @param releaseId The id of the Release.
      * @param environmentId The id of the Environment.
      * @param entryProperties entry properties
-     * @return A set of all variables for a given Release and Environment combination.
+     * @return the prompted variables that the entry properties give a value for
      * @throws IllegalArgumentException when the web client receives a bad parameter
      * @throws IOException When the AuthenticatedWebClient receives and error response code
      */
     public Set<Variable> getVariablesByReleaseAndEnvironment(String releaseId, String environmentId, Properties entryProperties) throws IllegalArgumentException, IOException {
-        Set<Variable> variables = new HashSet<Variable>();
+        return getOverrides(getPromptedVariables(releaseId, environmentId), entryProperties);
+    }
+
+    /**
+     * Get the prompted variables of a release in an environment, read from the deployment preview form.
+     * Only the id, name and description of each variable are read; the returned variables have no value.
+     * @param releaseId The id of the Release.
+     * @param environmentId The id of the Environment.
+     * @return the prompted variables, by name
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    public Map<String, Variable> getPromptedVariables(String releaseId, String environmentId) throws IllegalArgumentException, IOException {
+        Map<String, Variable> variables = new HashMap<String, Variable>();
 
         AuthenticatedWebClient.WebResponse response = webClient.get("api/releases/" + releaseId + "/deployments/preview/" + environmentId);
         if (response.isErrorCode()) {
             throw new IOException(String.format("Code %s - %n%s", response.getCode(), response.getContent()));
         }
         JSONObject json = (JSONObject)JSONSerializer.toJSON(response.getContent());
-        JSONObject form = json.getJSONObject("Form");
-        if (form != null){
-            JSONObject formValues = form.getJSONObject("Values");
-            for (Object obj : form.getJSONArray("Elements")) {
-                JSONObject jsonObj = (JSONObject) obj;
-                String id = jsonObj.getString("Name");
-                String name = jsonObj.getJSONObject("Control").getString("Name");
-                String value = formValues.getString(id);
-
-                String entryValue = entryProperties.getProperty(name);
-                if (StringUtils.isNotEmpty(entryValue)) {
-                    value = entryValue;
-                }
-                String description = jsonObj.getJSONObject("Control").getString("Description");
-                variables.add(new Variable(id, name, value, description));
+        JSONObject form = json.optJSONObject("Form");
+        if (form == null) {
+            return variables;
+        }
+        JSONArray elements = form.optJSONArray("Elements");
+        if (elements == null) {
+            return variables;
+        }
+        for (Object obj : elements) {
+            JSONObject jsonObj = (JSONObject) obj;
+            JSONObject control = jsonObj.optJSONObject("Control");
+            if (control == null) {
+                continue;
             }
+            String id = jsonObj.getString("Name");
+            String name = control.getString("Name");
+            String description = control.optString("Description", "");
+            variables.put(name, new Variable(id, name, null, description));
         }
 
         return variables;
     }
+
+    /**
+     * Pick the prompted variables that the entry properties give a non-empty value for.
+     * @param promptedVariables the prompted variables of a release in an environment, by name
+     * @param entryProperties entry properties
+     * @return the prompted variables to override, with their entry values
+     */
+    public static Set<Variable> getOverrides(Map<String, Variable> promptedVariables, Properties entryProperties) {
+        Set<Variable> variables = new HashSet<Variable>();
+        for (String name : entryProperties.stringPropertyNames()) {
+            Variable prompted = promptedVariables.get(name);
+            String entryValue = entryProperties.getProperty(name);
+            if (prompted != null && StringUtils.isNotEmpty(entryValue)) {
+                variables.add(new Variable(prompted.getId(), name, entryValue, prompted.getDescription()));
+            }
+        }
+        return variables;
+    }
 }
@@ -3,7 +3,7 @@ package com.octopusdeploy.api.data;
 /**
  * Simple representation of a Channel in Octopus.
  */
-public class Channel {
+public class Channel implements NamedResource {
     private final String id;
     public String getId() {
         return id;
@@ -30,13 +30,30 @@ public class Channel {
     }
     
     public Channel(String id, String name, String description, String projectId, boolean isDefault) {
-        this.id = id;
-        this.name = name;
+        this.id = Interned.of(id);
+        this.name = Interned.of(name);
         this.description = description;
-        this.projectId = projectId;
+        this.projectId = Interned.of(projectId);
         this.isDefault = isDefault;
     }
     
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        String otherId = ((Channel) obj).id;
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
+    }
+
     @Override
     public String toString() {
         return String.format("id= %s, name= %s, description= %s, projectId= %s, isDefault= %b", id, name, description, projectId, isDefault);
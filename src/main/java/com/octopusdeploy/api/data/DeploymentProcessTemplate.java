@@ -21,10 +21,24 @@ public class DeploymentProcessTemplate {
         return packages;
     }
     
+    private final String eTag;
+    /**
+     * The entity tag the template was served with, used to revalidate a cached copy.
+     * @return the ETag, or null if the server did not send one
+     */
+    public String getETag() {
+        return eTag;
+    }
+    
     public DeploymentProcessTemplate(String id, String projectId, Set<SelectedPackage> packages) {
+        this(id, projectId, packages, null);
+    }
+    
+    public DeploymentProcessTemplate(String id, String projectId, Set<SelectedPackage> packages, String eTag) {
         this.id = id;
         this.projectId = projectId;
         this.packages = packages;
+        this.eTag = eTag;
     }
 
     @Override
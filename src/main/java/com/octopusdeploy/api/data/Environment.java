@@ -5,7 +5,7 @@ package com.octopusdeploy.api.data;
  * deployment environments such as development, staging, test and production. 
  * Projects are deployed to environments.
  */
-public class Environment {
+public class Environment implements NamedResource {
     private final String name;
     public String getName() {
         return name;
@@ -23,11 +23,28 @@ public class Environment {
     
     public Environment(String id, String name, String description)
     {
-        this.id = id;
-        this.name = name;
+        this.id = Interned.of(id);
+        this.name = Interned.of(name);
         this.description = description;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        String otherId = ((Environment) obj).id;
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
+    }
+
     @Override
     public String toString() {
         return "Environment [name=" + name + ", id=" + id + ", description=" + description + "]";
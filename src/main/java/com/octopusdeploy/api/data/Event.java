@@ -0,0 +1,48 @@
+package com.octopusdeploy.api.data;
+
+import java.util.Set;
+
+/**
+ * Represents an entry in the Octopus audit event feed.
+ */
+public class Event {
+    private final String id;
+    public String getId() {
+        return id;
+    }
+
+    private final long autoId;
+    /**
+     * The sequence number of the event; later events have higher numbers.
+     * @return the sequence number
+     */
+    public long getAutoId() {
+        return autoId;
+    }
+
+    private final String category;
+    public String getCategory() {
+        return category;
+    }
+
+    private final Set<String> relatedDocumentIds;
+    /**
+     * The ids of the documents the event is about, ex. the deployment, its task, project and environment.
+     * @return the related document ids
+     */
+    public Set<String> getRelatedDocumentIds() {
+        return relatedDocumentIds;
+    }
+
+    public Event(String id, long autoId, String category, Set<String> relatedDocumentIds) {
+        this.id = id;
+        this.autoId = autoId;
+        this.category = category;
+        this.relatedDocumentIds = relatedDocumentIds;
+    }
+
+    @Override
+    public String toString() {
+        return "Event [id=" + id + ", category=" + category + ", relatedDocumentIds=" + relatedDocumentIds + "]";
+    }
+}
@@ -0,0 +1,13 @@
+package com.octopusdeploy.api.data;
+
+/**
+ * Ids and names are interned so that resources fetched many times share one copy of each string.
+ */
+final class Interned {
+    private Interned() {
+    }
+
+    static String of(String value) {
+        return value == null ? null : value.intern();
+    }
+}
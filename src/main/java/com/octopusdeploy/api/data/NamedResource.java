@@ -0,0 +1,11 @@
+package com.octopusdeploy.api.data;
+
+/**
+ * An Octopus resource that has an id and a name, such as a project, environment, tenant or channel.
+ * Resources are equal when they are of the same type and have the same id.
+ */
+public interface NamedResource {
+    String getId();
+
+    String getName();
+}
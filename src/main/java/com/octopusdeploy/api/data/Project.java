@@ -3,7 +3,7 @@ package com.octopusdeploy.api.data;
 /**
  * Represents a project from the OctopusDeploy API.
  */
-public class Project {
+public class Project implements NamedResource {
     private final String name;
     public String getName() {
         return name;
@@ -15,8 +15,25 @@ public class Project {
     }
     
     public Project(String id, String name) {
-        this.id = id;
-        this.name = name;
+        this.id = Interned.of(id);
+        this.name = Interned.of(name);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        String otherId = ((Project) obj).id;
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
     }
 
     @Override
@@ -30,13 +30,30 @@ public class Release {
     }
     
     public Release(String id, String projectId, String channelId, String releaseNotes, String version){
-        this.id = id;
-        this.projectId = projectId;
-        this.channelId = channelId;
+        this.id = Interned.of(id);
+        this.projectId = Interned.of(projectId);
+        this.channelId = Interned.of(channelId);
         this.releaseNotes = releaseNotes;
         this.version = version;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        String otherId = ((Release) obj).id;
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
+    }
+
     @Override
     public String toString() {
         return "Release [id=" + id + ", projectId=" + projectId + ", ChannelId=" + channelId + ", releaseNotes=" + releaseNotes + ", version=" + version + "]";
@@ -20,16 +20,24 @@ public class SelectedPackage {
     private final String version;
     public String getVersion() { return version; }
 
+    private final String feedId;
+    public String getFeedId() { return feedId; }
+
     public SelectedPackage(String stepName, String packageId, String packageReferenceName, String version) {
+        this(stepName, packageId, packageReferenceName, version, null);
+    }
+
+    public SelectedPackage(String stepName, String packageId, String packageReferenceName, String version, String feedId) {
         this.stepName = stepName;
         this.packageId = packageId;
         this.packageReferenceName = packageReferenceName;
         this.version = version;
+        this.feedId = feedId;
     }
 
     @Override
     public String toString() {
-        return "SelectedPackage [stepName=" + stepName + ", packageId=" + packageId + ", packageReferenceName=" + packageReferenceName + ", version=" + version + "]";
+        return "SelectedPackage [stepName=" + stepName + ", packageId=" + packageId + ", packageReferenceName=" + packageReferenceName + ", version=" + version + ", feedId=" + feedId + "]";
     }
 
 }
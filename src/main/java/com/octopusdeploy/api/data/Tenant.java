@@ -1,9 +1,14 @@
 package com.octopusdeploy.api.data;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Represents a Tenant.
  */
-public class Tenant {
+public class Tenant implements NamedResource {
     private final String name;
     public String getName() {
         return name;
@@ -14,14 +19,50 @@ public class Tenant {
         return id;
     }
 
+    private final String[] tags;
+    /**
+     * The canonical names of the tags on this tenant, ex. Region/East.
+     * @return the tags (may be empty)
+     */
+    public List<String> getTags() {
+        return Collections.unmodifiableList(Arrays.asList(tags));
+    }
+
     public Tenant(String id, String name)
     {
-        this.id = id;
-        this.name = name;
+        this(id, name, Collections.<String>emptyList());
+    }
+
+    public Tenant(String id, String name, Collection<String> tags)
+    {
+        this.id = Interned.of(id);
+        this.name = Interned.of(name);
+        this.tags = new String[tags.size()];
+        int i = 0;
+        for (String tag : tags) {
+            this.tags[i++] = Interned.of(tag);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        String otherId = ((Tenant) obj).id;
+        return id == null ? otherId == null : id.equals(otherId);
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? 0 : id.hashCode();
     }
 
     @Override
     public String toString() {
-        return "Tenant [name=" + name + ", id=" + id + "]";
+        return "Tenant [name=" + name + ", id=" + id + ", tags=" + Arrays.toString(tags) + "]";
     }
 }
@@ -3,6 +3,8 @@ package hudson.plugins.octopusdeploy;
 import com.octopusdeploy.api.OctopusApi;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Recorder;
+import hudson.util.ComboBoxModel;
+import hudson.util.FormValidation;
 import jenkins.model.Jenkins;
 
 import java.util.ArrayList;
@@ -98,6 +100,30 @@ public abstract class AbstractOctopusDeployRecorder extends Recorder {
     }
 
 
+    /**
+     * Whether builds waiting for a deployment follow the Octopus event feed, as set in the global configuration.
+     * @return true to wait on events, false to poll each task
+     */
+    public static boolean isWaitForEvents() {
+        return getPluginDescriptor().isWaitForEvents();
+    }
+
+    /**
+     * The most builds deploying to the same environment at once, as set in the global configuration.
+     * @return the limit, or 0 for no limit
+     */
+    public static int getMaxConcurrentDeploymentsPerEnvironment() {
+        return getPluginDescriptor().getMaxConcurrentDeploymentsPerEnvironment();
+    }
+
+    private static OctopusDeployPlugin.DescriptorImpl getPluginDescriptor() {
+        Jenkins jenkinsInstance = Jenkins.getInstance();
+        if (jenkinsInstance == null) {
+            throw new IllegalStateException("Jenkins instance is null");
+        }
+        return (OctopusDeployPlugin.DescriptorImpl) jenkinsInstance.getDescriptor(OctopusDeployPlugin.class);
+    }
+
     public static List<String> getOctopusDeployServersIds() {
 
         List<String> ids = new ArrayList<>();
@@ -132,6 +158,45 @@ public abstract class AbstractOctopusDeployRecorder extends Recorder {
         return getOctopusDeployServer().getApi();
     }
 
+    /**
+     * Get the cached projects, environments, tenants and channels of the server for this deployment
+     * @return the metadata cache for a given server
+     */
+    public OctopusMetadataCache getMetadataCache() {
+        return OctopusMetadataCache.forServer(getOctopusDeployServer());
+    }
+
+    /**
+     * Get the cached projects, environments, tenants and channels of a server
+     * @param serverId the server id, or empty for the default server
+     * @return the metadata cache for the server
+     */
+    public static OctopusMetadataCache getMetadataCache(String serverId) {
+        return OctopusMetadataCache.forServer(getOctopusDeployServer(serverId));
+    }
+
+    /**
+     * The names to list in a name combobox, in sorted order; at most OctopusNameIndex.MAX_CANDIDATES of them.
+     * @param names the names to list
+     * @return the combobox items
+     */
+    static ComboBoxModel listNames(OctopusNameIndex names) {
+        return new ComboBoxModel(names.startingWith(null, OctopusNameIndex.MAX_CANDIDATES));
+    }
+
+    /**
+     * Point out that a name may be missing from its combobox when its check fails and the list was cut short.
+     * @param validation the failed check of the name
+     * @param names the names listed in the combobox
+     * @return the validation, with a note when the list does not hold every name
+     */
+    static FormValidation withListHint(FormValidation validation, OctopusNameIndex names) {
+        if (names.size() <= OctopusNameIndex.MAX_CANDIDATES) {
+            return validation;
+        }
+        return FormValidation.error(String.format("%s Only the first %d of %d names are listed, type the full name.",
+                validation.getMessage(), OctopusNameIndex.MAX_CANDIDATES, names.size()));
+    }
 
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
@@ -28,6 +28,14 @@ public class Log {
         logger.append("INFO: " + msg + "\n");
     }
     
+    /**
+     * Print text as it is, with no prefix, ex. lines of a log from elsewhere.
+     * @param text The text, including its line breaks.
+     */
+    public void raw(String text) {
+        logger.append(text);
+    }
+    
     /**
      * Print an error message.
      * @param msg The error message.
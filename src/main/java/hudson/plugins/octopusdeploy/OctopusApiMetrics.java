@@ -0,0 +1,124 @@
+package hudson.plugins.octopusdeploy;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+import com.octopusdeploy.api.ApiCall;
+import com.octopusdeploy.api.ApiCallListener;
+import com.octopusdeploy.api.AuthenticatedWebClient;
+import hudson.Extension;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jenkins.metrics.api.MetricProvider;
+import jenkins.metrics.api.Metrics;
+
+/**
+ * Publishes Octopus API call metrics through the Metrics plugin, when it is installed.
+ * For every endpoint template (ex. api/projects/{id}/releases) and method this records:
+ *  octopusdeploy.api.[template].[method].duration - a timer of request latency
+ *  octopusdeploy.api.[template].[method].response-size - a histogram of response sizes in bytes
+ *  octopusdeploy.api.[template].[method].status.[code] - a counter per HTTP response code
+ *  octopusdeploy.api.[template].[method].in-flight - a gauge of requests currently waiting on Octopus
+ * Requests that fail without a response are counted under status.error.
+ */
+@Extension(optional = true)
+public class OctopusApiMetrics extends MetricProvider implements ApiCallListener {
+    private static final String PREFIX = "octopusdeploy.api";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> inFlightByEndpoint = new ConcurrentHashMap<String, AtomicInteger>();
+
+    public OctopusApiMetrics() {
+        AuthenticatedWebClient.addApiCallListener(this);
+    }
+
+    @Override
+    public MetricSet getMetricSet() {
+        final Map<String, Metric> metrics = new HashMap<String, Metric>();
+        metrics.put(MetricRegistry.name(PREFIX, "in-flight"), new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return inFlight.get();
+            }
+        });
+        return new MetricSet() {
+            @Override
+            public Map<String, Metric> getMetrics() {
+                return Collections.unmodifiableMap(metrics);
+            }
+        };
+    }
+
+    @Override
+    public void callStarted(ApiCall call) {
+        inFlight.incrementAndGet();
+        getInFlightCounter(call).incrementAndGet();
+    }
+
+    @Override
+    public void callFinished(ApiCall call) {
+        inFlight.decrementAndGet();
+        getInFlightCounter(call).decrementAndGet();
+
+        MetricRegistry registry = Metrics.metricRegistry();
+        if (registry == null) {
+            return;
+        }
+        String base = baseName(call);
+        registry.timer(MetricRegistry.name(base, "duration")).update(call.getDurationNanos(), TimeUnit.NANOSECONDS);
+        String status;
+        if (call.getFailure() != null || call.getResponseCode() < 0) {
+            status = "error";
+        } else {
+            status = Integer.toString(call.getResponseCode());
+            registry.histogram(MetricRegistry.name(base, "response-size")).update(call.getResponseBytes());
+        }
+        registry.counter(MetricRegistry.name(base, "status", status)).inc();
+    }
+
+    /**
+     * Get the in-flight counter for the call's endpoint, registering its gauge on first use.
+     * @param call the api call
+     * @return the counter backing the endpoint's in-flight gauge
+     */
+    private AtomicInteger getInFlightCounter(ApiCall call) {
+        final String name = MetricRegistry.name(baseName(call), "in-flight");
+        AtomicInteger counter = inFlightByEndpoint.get(name);
+        if (counter == null) {
+            AtomicInteger created = new AtomicInteger();
+            counter = inFlightByEndpoint.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+                registerGauge(name, created);
+            }
+        }
+        return counter;
+    }
+
+    private void registerGauge(String name, final AtomicInteger counter) {
+        MetricRegistry registry = Metrics.metricRegistry();
+        if (registry == null) {
+            return;
+        }
+        try {
+            registry.register(name, new Gauge<Integer>() {
+                @Override
+                public Integer getValue() {
+                    return counter.get();
+                }
+            });
+        } catch (IllegalArgumentException ex) {
+            // already registered by an earlier instance of this provider
+        }
+    }
+
+    private static String baseName(ApiCall call) {
+        return MetricRegistry.name(PREFIX, call.getEndpointTemplate(), call.getMethod());
+    }
+}
@@ -0,0 +1,436 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Descriptor;
+import hudson.model.Result;
+import hudson.model.StreamBuildListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Publisher;
+import hudson.util.ComboBoxModel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Creates the same release version for many projects in one step.
+ * Projects are looked up together in the metadata cache, release notes are gathered once, and the releases
+ * are created several at a time. Each project's log is written out in one piece once its release is done,
+ * and the outcome of every project is collected in an {@link OctopusReleaseBatchSummary}.
+ */
+public class OctopusDeployBatchReleaseRecorder extends AbstractOctopusDeployRecorder implements Serializable {
+    // This value should be incremented every time that this serializable's contract changes
+    private static final long serialVersionUID = 1;
+    private static final int DEFAULT_MAX_CONCURRENT_RELEASES = 4;
+
+    /**
+     * The names of the projects to release, one per line or separated by commas.
+     */
+    private final String projects;
+    public String getProjects() {
+        return projects;
+    }
+
+    /**
+     * The name of a project group whose projects are all released, in addition to the listed projects.
+     */
+    private final String projectGroup;
+    public String getProjectGroup() {
+        return projectGroup;
+    }
+
+    /**
+     * The release version as defined in Octopus, the same for all projects.
+     */
+    private final String releaseVersion;
+    public String getReleaseVersion() {
+        return releaseVersion;
+    }
+
+    /**
+     * The channel to release to, which every project must have. Empty for each project's default channel.
+     */
+    private final String channel;
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Include the SCM changes of this build in the release notes?
+     */
+    private final boolean releaseNotes;
+    public boolean getReleaseNotes() {
+        return releaseNotes;
+    }
+
+    /**
+     * Write a link back to the originating Jenkins build to the Octopus release notes?
+     */
+    private final boolean releaseNotesJenkinsLinkback;
+    public boolean getJenkinsUrlLinkback() {
+        return releaseNotesJenkinsLinkback;
+    }
+
+    /**
+     * Default package version to use for required packages.
+     */
+    private final String defaultPackageVersion;
+    public String getDefaultPackageVersion() {
+        return defaultPackageVersion;
+    }
+
+    /**
+     * Resolve required packages to the latest version in their feed, before falling back to the default package version.
+     */
+    private final boolean resolveLatestPackageVersions;
+    public boolean getResolveLatestPackageVersions() {
+        return resolveLatestPackageVersions;
+    }
+
+    /**
+     * The most releases to create at the same time.
+     */
+    private final int maxConcurrentReleases;
+    public int getMaxConcurrentReleases() {
+        return maxConcurrentReleases;
+    }
+
+    @DataBoundConstructor
+    public OctopusDeployBatchReleaseRecorder(String serverId, String projects, String projectGroup, String releaseVersion,
+            String channel, boolean releaseNotes, boolean jenkinsUrlLinkback, String defaultPackageVersion,
+            boolean resolveLatestPackageVersions, int maxConcurrentReleases) {
+        this.serverId = serverId.trim();
+        this.projects = projects == null ? "" : projects.trim();
+        this.projectGroup = projectGroup == null ? "" : projectGroup.trim();
+        this.releaseVersion = releaseVersion.trim();
+        this.channel = channel == null ? "" : channel.trim();
+        this.releaseNotes = releaseNotes;
+        this.releaseNotesJenkinsLinkback = jenkinsUrlLinkback;
+        this.defaultPackageVersion = defaultPackageVersion;
+        this.resolveLatestPackageVersions = resolveLatestPackageVersions;
+        this.maxConcurrentReleases = maxConcurrentReleases > 0 ? maxConcurrentReleases : DEFAULT_MAX_CONCURRENT_RELEASES;
+    }
+
+    @Override
+    public boolean perform(AbstractBuild build, Launcher launcher, BuildListener listener) {
+        Log log = new Log(listener);
+        if (Result.FAILURE.equals(build.getResult())) {
+            log.info("Not creating releases due to job being in FAILED state.");
+            return true;
+        }
+
+        EnvVars envVars;
+        try {
+            envVars = build.getEnvironment(listener);
+        } catch (Exception ex) {
+            log.fatal(String.format("Failed to retrieve environment variables for this build - '%s'", ex.getMessage()));
+            return false;
+        }
+        final EnvironmentVariableValueInjector envInjector = new EnvironmentVariableValueInjector(build.getBuildVariableResolver(), envVars);
+
+        // NOTE: hiding the member variables of the same name with their env-injected equivalents
+        String projects = envInjector.injectEnvironmentVariableValues(this.projects);
+        String projectGroup = envInjector.injectEnvironmentVariableValues(this.projectGroup);
+        final String releaseVersion = envInjector.injectEnvironmentVariableValues(this.releaseVersion);
+        final String channel = envInjector.injectEnvironmentVariableValues(this.channel);
+        final String defaultPackageVersion = envInjector.injectEnvironmentVariableValues(this.defaultPackageVersion);
+
+        log.info("Started Octopus Batch Release");
+        log.info("=======================");
+        log.info("Projects: " + projects.replaceAll("\\s*[\\r\\n]+\\s*", ", "));
+        if (!projectGroup.isEmpty()) {
+            log.info("Project Group: " + projectGroup);
+        }
+        log.info("Release Version: " + releaseVersion);
+        if (!channel.isEmpty()) {
+            log.info("Channel: " + channel);
+        }
+        log.info("Concurrent releases: " + maxConcurrentReleases);
+        log.info("=======================");
+
+        final OctopusTimingSummary timings = OctopusTimingSummary.forBuild(build);
+        long phaseStart = System.nanoTime();
+        Map<String, com.octopusdeploy.api.data.Project> projectsById;
+        try {
+            projectsById = lookupProjects(projects, projectGroup, log);
+        } catch (Exception ex) {
+            log.fatal(String.format("Retrieving projects failed with message '%s'", ex.getMessage()));
+            return false;
+        }
+        if (projectsById == null) {
+            return false;
+        }
+        final Map<String, com.octopusdeploy.api.data.Channel> channelsByProjectId = new HashMap<String, com.octopusdeploy.api.data.Channel>();
+        if (!channel.isEmpty()) {
+            try {
+                channelsByProjectId.putAll(lookupChannels(projectsById.values(), channel));
+            } catch (Exception ex) {
+                log.fatal(String.format("Retrieving channels failed with message '%s'", ex.getMessage()));
+                return false;
+            }
+        }
+        timings.record(OctopusTimingSummary.Phase.Lookup, projectsById.size() + " projects", phaseStart, log);
+
+        String notes = "";
+        if (releaseNotesJenkinsLinkback) {
+            String buildUrl = envInjector.injectEnvironmentVariableValues("${BUILD_URL}");
+            notes = String.format("Created by: <a href=\"%s\">%s</a>%n", buildUrl, buildUrl);
+        }
+        if (releaseNotes) {
+            notes += OctopusDeployReleaseRecorder.getReleaseNotesFromScm(build);
+        }
+        final String releaseNotesContent = notes;
+
+        final OctopusReleaseCreator releaseCreator = new OctopusReleaseCreator(getOctopusDeployServer(), null, resolveLatestPackageVersions);
+        final OctopusReleaseBatchSummary summary = new OctopusReleaseBatchSummary(releaseVersion);
+        build.addAction(summary);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentReleases, projectsById.size()),
+                new NamingThreadFactory(new DaemonThreadFactory(), "OctopusDeployBatchRelease"));
+        boolean success = true;
+        try {
+            List<Future<Boolean>> releases = new ArrayList<Future<Boolean>>();
+            List<ByteArrayOutputStream> projectLogs = new ArrayList<ByteArrayOutputStream>();
+            for (final com.octopusdeploy.api.data.Project p : projectsById.values()) {
+                final ByteArrayOutputStream projectLog = new ByteArrayOutputStream();
+                projectLogs.add(projectLog);
+                releases.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        Log log = new Log(new StreamBuildListener(projectLog, Charset.defaultCharset()));
+                        log.info("Project: " + p.getName());
+                        return createRelease(releaseCreator, p, channelsByProjectId.get(p.getId()), releaseVersion,
+                                releaseNotesContent, defaultPackageVersion, envInjector, timings, summary, log);
+                    }
+                }));
+            }
+            for (int i = 0; i < releases.size(); i++) {
+                success &= releases.get(i).get();
+                listener.getLogger().write(projectLogs.get(i).toByteArray());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.fatal("Batch release was interrupted.");
+            return false;
+        } catch (ExecutionException ex) {
+            log.fatal(String.format("Batch release failed - %s", ex.getCause().getMessage()));
+            return false;
+        } catch (IOException ex) {
+            log.fatal(String.format("Batch release failed - %s", ex.getMessage()));
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int failed = summary.getFailedCount();
+        log.info(String.format("Created %d of %d releases", projectsById.size() - failed, projectsById.size()));
+        return success;
+    }
+
+    /**
+     * Find all projects to release: listed names in the metadata cache, refreshing it at most once for names it does
+     * not know yet, then the projects of the group. A project named twice, in any case, or also in the group, is released once.
+     * @return the projects by id, listed ones first, or null if some were not found
+     */
+    private Map<String, com.octopusdeploy.api.data.Project> lookupProjects(String projects, String projectGroup, Log log) throws IOException {
+        Set<String> names = new LinkedHashSet<String>();
+        for (String name : projects.split("[,\\r\\n]+")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        Set<com.octopusdeploy.api.data.Project> groupProjects = Collections.emptySet();
+        if (!projectGroup.isEmpty()) {
+            groupProjects = getApi().getProjectsApi().getProjectsInGroup(projectGroup);
+            if (groupProjects == null) {
+                log.fatal(String.format("Project group '%s' was not found.", projectGroup));
+                return null;
+            }
+        }
+        if (names.isEmpty() && groupProjects.isEmpty()) {
+            log.fatal("No projects to release.");
+            return null;
+        }
+
+        OctopusMetadataIndex index = getMetadataCache().getIndex();
+        for (String name : names) {
+            if (index.getProjectByName(name, false) == null) {
+                index = getMetadataCache().refreshForMiss();
+                break;
+            }
+        }
+        Map<String, com.octopusdeploy.api.data.Project> projectsById = new LinkedHashMap<String, com.octopusdeploy.api.data.Project>();
+        boolean found = true;
+        for (String name : names) {
+            com.octopusdeploy.api.data.Project p = index.getProjectByName(name, false);
+            if (p == null) {
+                log.fatal(String.format("Project '%s' was not found.", name));
+                found = false;
+            } else {
+                projectsById.put(p.getId(), p);
+            }
+        }
+        for (com.octopusdeploy.api.data.Project p : groupProjects) {
+            if (!projectsById.containsKey(p.getId())) {
+                projectsById.put(p.getId(), p);
+            }
+        }
+        return found ? projectsById : null;
+    }
+
+    /**
+     * Find the channel of every project, loading the channels of all projects at once.
+     * @return the channels by project id
+     * @throws IOException if the channels could not be fetched, or some project has no such channel
+     */
+    private Map<String, com.octopusdeploy.api.data.Channel> lookupChannels(Collection<com.octopusdeploy.api.data.Project> projects,
+            String channel) throws IOException {
+        List<String> projectIds = new ArrayList<String>();
+        for (com.octopusdeploy.api.data.Project p : projects) {
+            projectIds.add(p.getId());
+        }
+        OctopusMetadataIndex index = getMetadataCache().loadChannels(projectIds);
+        Map<String, com.octopusdeploy.api.data.Channel> channels = new HashMap<String, com.octopusdeploy.api.data.Channel>();
+        List<String> missing = new ArrayList<String>();
+        for (com.octopusdeploy.api.data.Project p : projects) {
+            com.octopusdeploy.api.data.Channel c = index.getChannelByName(p.getId(), channel);
+            if (c == null) {
+                missing.add(p.getName());
+            }
+            channels.put(p.getId(), c);
+        }
+        if (!missing.isEmpty()) {
+            throw new IOException(String.format("Channel '%s' was not found in projects %s", channel, missing));
+        }
+        return channels;
+    }
+
+    private boolean createRelease(OctopusReleaseCreator releaseCreator, com.octopusdeploy.api.data.Project p,
+            com.octopusdeploy.api.data.Channel c, String releaseVersion, String releaseNotesContent, String defaultPackageVersion,
+            EnvironmentVariableValueInjector envInjector, OctopusTimingSummary timings, OctopusReleaseBatchSummary summary, Log log) {
+        try {
+            String url = releaseCreator.createRelease(p, c, releaseVersion, releaseNotesContent, defaultPackageVersion, envInjector, timings, log);
+            log.info("Release created: \n\t" + url);
+            summary.created(p.getName(), url);
+            return true;
+        } catch (Exception ex) {
+            log.fatal("Failed to create release: " + ex.getMessage());
+            summary.failed(p.getName(), ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Descriptor for {@link OctopusDeployBatchReleaseRecorder}. Used as a singleton.
+     * The class is marked as public so that it can be accessed from views.
+     */
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+        public DescriptorImpl() {
+            load();
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "OctopusDeploy Batch Release";
+        }
+
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject formData) throws Descriptor.FormException {
+            save();
+            return true;
+        }
+
+        public String getDefaultOctopusDeployServerId() {
+            OctopusDeployServer server = AbstractOctopusDeployRecorder.getDefaultOctopusDeployServer();
+            if (server != null) {
+                return server.getId();
+            }
+            return null;
+        }
+
+        /**
+         * Check that the serverId field is not empty.
+         * @param serverId The id of OctopusDeployServer in the configuration.
+         * @return Ok if not empty, error otherwise.
+         */
+        public FormValidation doCheckServerId(@QueryParameter String serverId) {
+            serverId = serverId.trim();
+            return OctopusValidator.validateServerId(serverId);
+        }
+
+        /**
+         * Check that there are projects or a project group to release.
+         * @param projects The project names.
+         * @param projectGroup The project group name.
+         * @return Ok if either is set, error otherwise.
+         */
+        public FormValidation doCheckProjects(@QueryParameter String projects, @QueryParameter String projectGroup) {
+            if ((projects == null || projects.trim().isEmpty()) && (projectGroup == null || projectGroup.trim().isEmpty())) {
+                return FormValidation.error("Please provide the projects or a project group to release.");
+            }
+            return FormValidation.ok();
+        }
+
+        /**
+         * Check that the releaseVersion field is not empty.
+         * @param releaseVersion The release version.
+         * @return Ok if not empty, error otherwise.
+         */
+        public FormValidation doCheckReleaseVersion(@QueryParameter String releaseVersion) {
+            if (releaseVersion == null || releaseVersion.trim().isEmpty()) {
+                return FormValidation.error("Please provide a release version.");
+            }
+            return FormValidation.ok();
+        }
+
+        /**
+         * Check that the maxConcurrentReleases field is a positive number.
+         * @param maxConcurrentReleases The most releases at the same time.
+         * @return Ok if a positive number, error otherwise.
+         */
+        public FormValidation doCheckMaxConcurrentReleases(@QueryParameter String maxConcurrentReleases) {
+            return FormValidation.validatePositiveInteger(maxConcurrentReleases);
+        }
+
+        /**
+         * Data binding that returns all configured Octopus server ids to be used in the serverId drop-down list.
+         * @return ComboBoxModel
+         */
+        public ComboBoxModel doFillServerIdItems() {
+            return new ComboBoxModel(getOctopusDeployServersIds());
+        }
+    }
+}
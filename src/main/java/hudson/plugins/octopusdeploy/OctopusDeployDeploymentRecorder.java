@@ -5,6 +5,7 @@ import com.octopusdeploy.api.data.Release;
 import com.octopusdeploy.api.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import hudson.*;
 import hudson.model.*;
 import hudson.tasks.*;
@@ -18,6 +19,15 @@ import org.kohsuke.stapler.*;
  * Executes deployments of releases.
  */
 public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecorder implements Serializable {
+    private static final String QUEUED_STATE = "Queued";
+    private static final int DEFAULT_MAX_CONCURRENT_TENANTS = 8;
+    private static final int DEFAULT_MAX_FAILURE_PERCENT = 100;
+    /**
+     * Whether a deployment of a release to an environment that is already queued or running is joined instead of
+     * deployed again; false unless the hudson.plugins.octopusdeploy.OctopusDeployDeploymentRecorder.coalesceDeployments
+     * system property is set to true.
+     */
+    static final boolean COALESCE_DEPLOYMENTS = Boolean.getBoolean(OctopusDeployDeploymentRecorder.class.getName() + ".coalesceDeployments");
 
     /**
      * The release version number in Octopus.
@@ -35,13 +45,61 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         return variables;
     }
 
+    /**
+     * Tags that select the tenants to deploy to, ex. Region/East, instead of a single tenant.
+     */
+    private final String tenantTags;
+    public String getTenantTags() {
+        return tenantTags;
+    }
+
+    /**
+     * The most tenant deployments in progress at the same time when deploying by tenant tags.
+     */
+    private final int maxConcurrentTenants;
+    public int getMaxConcurrentTenants() {
+        return maxConcurrentTenants > 0 ? maxConcurrentTenants : DEFAULT_MAX_CONCURRENT_TENANTS; // 0 in jobs saved before it existed
+    }
+
+    /**
+     * The number of tenants in each wave when deploying by tenant tags; 0 for a single wave.
+     */
+    private final int waveSize;
+    public int getWaveSize() {
+        return waveSize;
+    }
+
+    /**
+     * How long to wait between waves, in seconds.
+     */
+    private final int pauseBetweenWaves;
+    public int getPauseBetweenWaves() {
+        return pauseBetweenWaves;
+    }
+
+    /**
+     * The share of finished tenant deployments, in percent, that may fail before no further deployments are started.
+     */
+    private final Integer maxFailurePercent;
+    public int getMaxFailurePercent() {
+        return maxFailurePercent == null ? DEFAULT_MAX_FAILURE_PERCENT : maxFailurePercent; // null in jobs saved before it existed
+    }
+
     @DataBoundConstructor
-    public OctopusDeployDeploymentRecorder(String serverId, String project, String releaseVersion, String environment, String tenant, String variables, boolean waitForDeployment) {
+    public OctopusDeployDeploymentRecorder(String serverId, String project, String releaseVersion, String environment, String tenant,
+            String tenantTags, int maxConcurrentTenants, int waveSize, int pauseBetweenWaves, Integer maxFailurePercent,
+            String variables, boolean waitForDeployment) {
         this.serverId = serverId.trim();
         this.project = project.trim();
         this.releaseVersion = releaseVersion.trim();
         this.environment = environment.trim();
         this.tenant = tenant == null ? null : tenant.trim(); // Otherwise this can throw on plugin version upgrade
+        this.tenantTags = tenantTags == null ? "" : tenantTags.trim();
+        this.maxConcurrentTenants = maxConcurrentTenants > 0 ? maxConcurrentTenants : DEFAULT_MAX_CONCURRENT_TENANTS;
+        this.waveSize = Math.max(0, waveSize);
+        this.pauseBetweenWaves = Math.max(0, pauseBetweenWaves);
+        this.maxFailurePercent = maxFailurePercent == null ? DEFAULT_MAX_FAILURE_PERCENT // not set in a pipeline step
+                : Math.max(0, Math.min(DEFAULT_MAX_FAILURE_PERCENT, maxFailurePercent));
         this.variables = variables.trim();
         this.waitForDeployment = waitForDeployment;
     }
@@ -72,11 +130,14 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         String releaseVersion = envInjector.injectEnvironmentVariableValues(this.releaseVersion);
         String environment = envInjector.injectEnvironmentVariableValues(this.environment);
         String tenant = envInjector.injectEnvironmentVariableValues(this.tenant);
+        String tenantTags = envInjector.injectEnvironmentVariableValues(this.tenantTags);
         String variables = envInjector.injectEnvironmentVariableValues(this.variables);
 
+        OctopusTimingSummary timings = OctopusTimingSummary.forBuild(build);
+        long phaseStart = System.nanoTime();
         com.octopusdeploy.api.data.Project p = null;
         try {
-            p = getApi().getProjectsApi().getProjectByName(project);
+            p = getMetadataCache().getProjectByName(project);
         } catch (Exception ex) {
             log.fatal(String.format("Retrieving project name '%s' failed with message '%s'",
                     project, ex.getMessage()));
@@ -84,7 +145,7 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         }
         com.octopusdeploy.api.data.Environment env = null;
         try {
-            env = getApi().getEnvironmentsApi().getEnvironmentByName(environment);
+            env = getMetadataCache().getEnvironmentByName(environment);
         } catch (Exception ex) {
             log.fatal(String.format("Retrieving environment name '%s' failed with message '%s'",
                     environment, ex.getMessage()));
@@ -108,7 +169,7 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         if (tenant != null && !tenant.isEmpty()) {
             com.octopusdeploy.api.data.Tenant ten = null;
             try {
-                ten = getApi().getTenantsApi().getTenantByName(tenant);
+                ten = getMetadataCache().getTenantByName(tenant);
                 if (ten != null) {
                     tenantId = ten.getId();
                 } else {
@@ -121,6 +182,25 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 return false;
             }
         }
+        List<com.octopusdeploy.api.data.Tenant> taggedTenants = null;
+        List<String> tags = parseTenantTags(tenantTags);
+        if (!tags.isEmpty()) {
+            if (tenantId != null) {
+                log.fatal("Set either a tenant or tenant tags, not both.");
+                return false;
+            }
+            try {
+                taggedTenants = getMetadataCache().getTenantsWithTags(tags);
+            } catch (Exception ex) {
+                log.fatal(String.format("Retrieving tenants with tags %s failed with message '%s'", tags, ex.getMessage()));
+                return false;
+            }
+            if (taggedTenants.isEmpty()) {
+                log.fatal(String.format("No tenants have the tags %s", tags));
+                return false;
+            }
+            log.info(String.format("%d tenants have the tags %s", taggedTenants.size(), tags));
+        }
 
         Set<com.octopusdeploy.api.data.Release> releases = null;
         try {
@@ -156,20 +236,54 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
             success = false;
         }
 
-        // TODO: Can we tell if we need to call? For now I will always try and get variable and use if I find them
+        // Only releases with prompted variables need the deployment preview, and only when the build sets some
         Set<com.octopusdeploy.api.data.Variable> variablesForDeploy = null;
-
+        if (!properties.isEmpty()) {
+            try {
+                Map<String, com.octopusdeploy.api.data.Variable> promptedVariables =
+                        getMetadataCache().getPromptedVariables(releaseToDeploy.getId(), env.getId());
+                for (String name : properties.stringPropertyNames()) {
+                    if (!promptedVariables.containsKey(name)) {
+                        log.info(String.format("Variable '%s' is not a prompted variable of release %s in %s, ignoring it.",
+                                name, releaseVersion, env.getName()));
+                    }
+                }
+                variablesForDeploy = VariablesApi.getOverrides(promptedVariables, properties);
+            } catch (Exception ex) {
+                log.fatal(String.format("Retrieving variables for release '%s' to environment '%s' failed with message '%s'",
+                        releaseToDeploy.getId(), env.getName(), ex.getMessage()));
+                success = false;
+            }
+        }
+        timings.record(OctopusTimingSummary.Phase.Lookup, project, phaseStart, log);
+        if (taggedTenants != null) {
+            if (!success) {
+                return false;
+            }
+            return deployToTenants(build, p.getId(), releaseToDeploy, env, taggedTenants, variablesForDeploy, timings, project, log);
+        }
+        phaseStart = System.nanoTime();
+        int maxConcurrentDeployments = getMaxConcurrentDeploymentsPerEnvironment();
+        OctopusDeploymentGate.Permit slot;
         try {
-            String releaseId = releaseToDeploy.getId();
-            String environmentId = env.getId();
-            variablesForDeploy = getApi().getVariablesApi().getVariablesByReleaseAndEnvironment(releaseId, environmentId, properties);
-        } catch (Exception ex) {
-            log.fatal(String.format("Retrieving variables for release '%s' to environment '%s' failed with message '%s'",
-                    releaseToDeploy.getId(), env.getName(), ex.getMessage()));
-            success = false;
+            slot = OctopusDeploymentGate.acquire(getOctopusDeployServer(), env.getId(), env.getName(), maxConcurrentDeployments, log);
+        } catch (InterruptedException ex) {
+            log.fatal("Interrupted while waiting for a deployment slot.");
+            return false;
+        }
+        if (maxConcurrentDeployments > 0) {
+            timings.record(OctopusTimingSummary.Phase.AdmissionWait, project, phaseStart, log);
         }
         try {
-            String results = getApi().getDeploymentsApi().executeDeployment(releaseToDeploy.getId(), env.getId(), tenantId, variablesForDeploy);
+            phaseStart = System.nanoTime();
+            String results = null;
+            if (COALESCE_DEPLOYMENTS && variables.isEmpty()) {
+                results = getInFlightDeployment(p.getId(), releaseToDeploy.getId(), env.getId(), tenantId, log);
+            }
+            if (results == null) {
+                results = getApi().getDeploymentsApi().executeDeployment(releaseToDeploy.getId(), env.getId(), tenantId, variablesForDeploy);
+            }
+            timings.record(OctopusTimingSummary.Phase.DeploymentCreation, project, phaseStart, log);
             if (isTaskJson(results)) {
                 JSON resultJson = JSONSerializer.toJSON(results);
                 String urlSuffix = ((JSONObject)resultJson).getJSONObject("Links").getString("Web");
@@ -181,7 +295,7 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 build.addAction(new BuildInfoSummary(BuildInfoSummary.OctopusDeployEventType.Deployment, url + urlSuffix));
                 if (waitForDeployment) {
                     log.info("Waiting for deployment to complete.");
-                    String resultState = waitForDeploymentCompletion(resultJson, getApi(), log);
+                    String resultState = waitForDeploymentCompletion(build, resultJson, getApi(), log, timings, project);
                     if (resultState == null) {
                         log.info("Marking build failed due to failure in waiting for deployment to complete.");
                         success = false;
@@ -196,11 +310,83 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         } catch (IOException ex) {
             log.fatal("Failed to deploy: " + ex.getMessage());
             success = false;
+        } finally {
+            slot.close();
         }
 
         return success;
     }
 
+    /**
+     * Deploy a release to the tenants selected by tag in waves, several at a time, recording each outcome on the build.
+     * @return true if every deployment was created and none failed
+     */
+    private boolean deployToTenants(AbstractBuild build, String projectId, Release release, com.octopusdeploy.api.data.Environment env,
+            List<com.octopusdeploy.api.data.Tenant> tenants, Set<com.octopusdeploy.api.data.Variable> variablesForDeploy,
+            OctopusTimingSummary timings, String project, Log log) {
+        OctopusTenantDeploymentSummary summary = new OctopusTenantDeploymentSummary(release.getVersion(), env.getName());
+        build.addAction(summary);
+        log.info(String.format("Deploying to %d tenants, %d at a time.", tenants.size(), getMaxConcurrentTenants()));
+        if (waveSize > 0 && waveSize < tenants.size()) {
+            log.info(String.format("Waves of %d tenants, %d s apart, stopping if more than %d%% of deployments fail.",
+                    waveSize, pauseBetweenWaves, getMaxFailurePercent()));
+        }
+        long phaseStart = System.nanoTime();
+        OctopusTenantRollout rollout = new OctopusTenantRollout(getOctopusDeployServer(), projectId, release.getId(), env,
+                variablesForDeploy, waitForDeployment, getMaxConcurrentTenants(), waveSize, pauseBetweenWaves, getMaxFailurePercent(),
+                summary, log);
+        boolean success;
+        try {
+            success = rollout.deploy(tenants);
+        } catch (InterruptedException ex) {
+            log.fatal("Interrupted while deploying to tenants.");
+            return false;
+        }
+        timings.record(OctopusTimingSummary.Phase.TenantRollout, project, phaseStart, log);
+        log.info(String.format("Deployed to %d of %d tenants.", summary.getTenantCount() - summary.getFailedCount(), tenants.size()));
+        if (!success) {
+            log.info("Marking build failed due to failed tenant deployments.");
+        }
+        return success;
+    }
+
+    /**
+     * Split tenant tags separated by commas or new lines.
+     * @param tenantTags the tags as configured
+     * @return the canonical tag names, ex. Region/East
+     */
+    static List<String> parseTenantTags(String tenantTags) {
+        List<String> tags = new ArrayList<String>();
+        if (tenantTags == null) {
+            return tags;
+        }
+        for (String tag : tenantTags.split("[,\\n]")) {
+            if (!tag.trim().isEmpty()) {
+                tags.add(tag.trim());
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Look for a deployment of the same release to the same environment and tenant that has not finished yet,
+     * so a retriggered build can follow it rather than queue a duplicate. Deployments with prompted variables
+     * are never joined, since the running one may have been given different values.
+     * @return the in-flight deployment, or null to deploy as usual
+     */
+    private String getInFlightDeployment(String projectId, String releaseId, String environmentId, String tenantId, Log log) {
+        try {
+            String deployment = getApi().getDeploymentsApi().getInFlightDeployment(projectId, releaseId, environmentId, tenantId);
+            if (deployment != null) {
+                log.info("This release is already being deployed to this environment; following that deployment instead of creating another.");
+            }
+            return deployment;
+        } catch (Exception ex) {
+            log.info("Unable to check for a deployment in progress, deploying - " + ex.getMessage());
+            return null;
+        }
+    }
+
     private DescriptorImpl getDescriptorImpl() {
         return ((DescriptorImpl)getDescriptor());
     }
@@ -218,6 +404,9 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         if (tenant != null && !tenant.isEmpty()) {
             log.info("Tenant: " + tenant);
         }
+        if (tenantTags != null && !tenantTags.isEmpty()) {
+            log.info("Tenant tags: " + tenantTags);
+        }
         log.info("======================");
     }
 
@@ -238,24 +427,37 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
 
     /**
      * Returns control when task is complete.
+     * The task log is copied into the build console as it grows.
+     * When waiting on the event feed is turned on, the task is checked when an event about it arrives,
+     * or once a fallback interval has passed without one.
+     * The task is kept in {@link OctopusPendingTasks} while waiting, so its outcome is still recorded if the controller restarts.
+     * @param build the waiting build
      * @param json json input
      * @param api octopus api
      * @param logger logger
+     * @param timings where to record the queue and execution wait times
+     * @param project the project name, for the timings
      * @return the task state for the deployment
      */
-    private String waitForDeploymentCompletion(JSON json, OctopusApi api, Log logger) {
+    private String waitForDeploymentCompletion(AbstractBuild build, JSON json, OctopusApi api, Log logger, OctopusTimingSummary timings, String project) {
         final long WAIT_TIME = 5000;
         final double WAIT_RANDOM_SCALER = 100.0;
         JSONObject jsonObj = (JSONObject)json;
         String id = jsonObj.getString("TaskId");
         Task task = null;
         String lastState = "Unknown";
+        long waitStart = System.nanoTime();
+        long executionStart = 0;
+        Object waitEvent = OctopusFlightRecorder.beginDeploymentWait();
         try {
             task = api.getTasksApi().getTask(id);
         } catch (IOException ex) {
             logger.error("Error getting task: " + ex.getMessage());
+            OctopusFlightRecorder.endDeploymentWait(waitEvent, id, null);
             return null;
         }
+        lastState = task.getState();
+        OctopusFlightRecorder.taskStateChanged(id, null, lastState);
 
         logger.info("Task info:");
         logger.info("\tId: " + task.getId());
@@ -263,31 +465,75 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         logger.info("\tDesc: " + task.getDescription());
         logger.info("\tState: " + task.getState());
         logger.info("\n\nStarting wait...");
+        OctopusTaskLogStreamer taskLog = new OctopusTaskLogStreamer(api.getTasksApi(), id, logger);
         boolean completed = task.getIsCompleted();
-        while (!completed)
-        {
-            try {
-                task = api.getTasksApi().getTask(id);
-            } catch (IOException ex) {
-                logger.error("Error getting task: " + ex.getMessage());
-                return null;
-            }
+        if (!QUEUED_STATE.equals(task.getState())) {
+            executionStart = System.nanoTime();
+        }
+        boolean interrupted = false;
+        if (!completed) {
+            OctopusPendingTasks.add(getServerId(), id, build, project);
+        }
+        OctopusTaskWatcher.Subscription events = null;
+        if (!completed && isWaitForEvents()) {
+            events = OctopusTaskWatcher.forServer(getOctopusDeployServer()).watch(id);
+            logger.info(String.format("Waiting on the Octopus event feed, checking the task at least every %d seconds", OctopusTaskWatcher.FALLBACK_SECONDS));
+        }
+        try {
+            while (!completed)
+            {
+                try {
+                    task = api.getTasksApi().getTask(id);
+                } catch (IOException ex) {
+                    logger.error("Error getting task: " + ex.getMessage());
+                    OctopusFlightRecorder.endDeploymentWait(waitEvent, id, lastState);
+                    return null;
+                }
 
-            completed = task.getIsCompleted();
-            lastState = task.getState();
-            logger.info("Task state: " + lastState);
-            if (completed) {
-                break;
+                completed = task.getIsCompleted();
+                String previousState = lastState;
+                lastState = task.getState();
+                if (!lastState.equals(previousState)) {
+                    OctopusFlightRecorder.taskStateChanged(id, previousState, lastState);
+                    logger.info("Task state: " + lastState);
+                }
+                taskLog.poll();
+                if (executionStart == 0 && !QUEUED_STATE.equals(lastState)) {
+                    executionStart = System.nanoTime();
+                }
+                if (completed) {
+                    break;
+                }
+                try {
+                    if (events != null) {
+                        events.await(TimeUnit.SECONDS.toMillis(OctopusTaskWatcher.FALLBACK_SECONDS));
+                    } else {
+                        Thread.sleep(WAIT_TIME + (long)(Math.random() * WAIT_RANDOM_SCALER));
+                    }
+                } catch (InterruptedException ex) {
+                    logger.info("Wait interrupted!");
+                    logger.info(ex.getMessage());
+                    completed = true; // bail out of wait loop
+                    interrupted = true;
+                }
             }
-            try {
-                Thread.sleep(WAIT_TIME + (long)(Math.random() * WAIT_RANDOM_SCALER));
-            } catch (InterruptedException ex) {
-                logger.info("Wait interrupted!");
-                logger.info(ex.getMessage());
-                completed = true; // bail out of wait loop
+        } finally {
+            if (events != null) {
+                events.close();
+            }
+            if (!interrupted || !OctopusPendingTasks.isShuttingDown()) {
+                // only a wait cut off by a controller shutdown leaves its task to be resumed; an abort forgets it
+                OctopusPendingTasks.remove(id);
             }
         }
+        taskLog.drain();
         logger.info("Wait complete!");
+        OctopusFlightRecorder.endDeploymentWait(waitEvent, id, lastState);
+        if (executionStart == 0) {
+            executionStart = System.nanoTime();
+        }
+        timings.record(OctopusTimingSummary.Phase.QueueWait, project, waitStart, executionStart, logger);
+        timings.record(OctopusTimingSummary.Phase.ExecutionWait, project, executionStart, logger);
         return lastState;
     }
 
@@ -320,10 +566,6 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
             return true;
         }
 
-        private OctopusApi getApiByServerId(String serverId){
-            return AbstractOctopusDeployRecorder.getOctopusDeployServer(serverId).getApi();
-        }
-
         public String getDefaultOctopusDeployServerId() {
 
             OctopusDeployServer server = AbstractOctopusDeployRecorder.getDefaultOctopusDeployServer();
@@ -357,9 +599,12 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
-            OctopusValidator validator = new OctopusValidator(api);
-            return validator.validateProject(project);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
+            FormValidation validation = validator.validateProject(project);
+            if (validation.kind != FormValidation.Kind.ERROR) {
+                return validation;
+            }
+            return withListHint(validation, getMetadataCache(serverId).getIndex().getProjectNames());
         }
 
         /**
@@ -376,13 +621,12 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             if (project == null || project.isEmpty()) {
                 return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
             }
             com.octopusdeploy.api.data.Project p;
             try {
-                p = api.getProjectsApi().getProjectByName(project);
+                p = getMetadataCache(serverId).getProjectByName(project);
                 if (p == null) {
                     return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
                 }
@@ -390,7 +634,7 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
             }
 
-            OctopusValidator validator = new OctopusValidator(api);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
             return validator.validateRelease(releaseVersion, p.getId(), OctopusValidator.ReleaseExistenceRequirement.MustExist);
         }
 
@@ -408,9 +652,65 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
-            OctopusValidator validator = new OctopusValidator(api);
-            return validator.validateEnvironment(environment);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
+            FormValidation validation = validator.validateEnvironment(environment);
+            if (validation.kind != FormValidation.Kind.ERROR) {
+                return validation;
+            }
+            return withListHint(validation, getMetadataCache(serverId).getIndex().getEnvironmentNames());
+        }
+
+        /**
+         * Check that tenant tags are not set together with a tenant.
+         * @param tenantTags The tags that select tenants.
+         * @param tenant The name of a single tenant.
+         * @return Ok if only one of them is set, error otherwise.
+         */
+        public FormValidation doCheckTenantTags(@QueryParameter String tenantTags, @QueryParameter String tenant) {
+            if (!parseTenantTags(tenantTags).isEmpty() && tenant != null && !tenant.trim().isEmpty()) {
+                return FormValidation.error("Set either a tenant or tenant tags, not both.");
+            }
+            return FormValidation.ok();
+        }
+
+        /**
+         * Check that the maxConcurrentTenants field is a positive number.
+         * @param maxConcurrentTenants The most tenants to deploy to at the same time.
+         * @return Ok if it is a positive number, error otherwise.
+         */
+        public FormValidation doCheckMaxConcurrentTenants(@QueryParameter String maxConcurrentTenants) {
+            return FormValidation.validatePositiveInteger(maxConcurrentTenants);
+        }
+
+        /**
+         * Check that the waveSize field is zero or a positive number.
+         * @param waveSize The number of tenants in each wave.
+         * @return Ok if it is not negative, error otherwise.
+         */
+        public FormValidation doCheckWaveSize(@QueryParameter String waveSize) {
+            return FormValidation.validateNonNegativeInteger(waveSize);
+        }
+
+        /**
+         * Check that the pauseBetweenWaves field is zero or a positive number.
+         * @param pauseBetweenWaves Seconds between waves.
+         * @return Ok if it is not negative, error otherwise.
+         */
+        public FormValidation doCheckPauseBetweenWaves(@QueryParameter String pauseBetweenWaves) {
+            return FormValidation.validateNonNegativeInteger(pauseBetweenWaves);
+        }
+
+        /**
+         * Check that the maxFailurePercent field is a percentage.
+         * @param maxFailurePercent The share of failed deployments that stops a rollout.
+         * @return Ok if it is between 0 and 100, error otherwise.
+         */
+        public FormValidation doCheckMaxFailurePercent(@QueryParameter String maxFailurePercent) {
+            FormValidation validation = FormValidation.validateNonNegativeInteger(maxFailurePercent);
+            if (validation.kind == FormValidation.Kind.OK && Integer.parseInt(maxFailurePercent.trim()) > 100) {
+                return FormValidation.error("Must be 100 or less.");
+            }
+            return validation;
         }
 
         /**
@@ -423,75 +723,57 @@ public class OctopusDeployDeploymentRecorder extends AbstractOctopusDeployRecord
         }
 
         /**
-         * Data binding that returns all possible environment names to be used in the environment autocomplete.
+         * Data binding that returns the cached environment names to be used in the environment autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillEnvironmentItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Environment> environments = api.getEnvironmentsApi().getAllEnvironments();
-                for (com.octopusdeploy.api.data.Environment env : environments) {
-                    names.add(env.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getEnvironmentNames());
             } catch (Exception ex) {
                 Logger.getLogger(OctopusDeployDeploymentRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
 
         /**
-         * Data binding that returns all possible project names to be used in the project autocomplete.
+         * Data binding that returns the cached project names to be used in the project autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillProjectItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Project> projects = api.getProjectsApi().getAllProjects();
-                for (com.octopusdeploy.api.data.Project proj : projects) {
-                    names.add(proj.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getProjectNames());
             } catch (Exception ex) {
                 Logger.getLogger(OctopusDeployDeploymentRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
 
         /**
-         * Data binding that returns all possible tenant names to be used in the tenant autocomplete.
+         * Data binding that returns the cached tenant names to be used in the tenant autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillTenantItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Tenant> tenants = api.getTenantsApi().getAllTenants();
-                for (com.octopusdeploy.api.data.Tenant ten : tenants) {
-                    names.add(ten.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getTenantNames());
             } catch (Exception ex) {
                 Logger.getLogger(OctopusDeployDeploymentRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
     }
 }
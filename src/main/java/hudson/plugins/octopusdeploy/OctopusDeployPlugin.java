@@ -66,6 +66,31 @@ public class OctopusDeployPlugin extends GlobalPluginConfiguration {
             octopusDeployServers = servers;
         }
 
+        /**
+         * Whether builds waiting for a deployment are woken by the Octopus event feed, instead of each polling its task.
+         */
+        private boolean waitForEvents;
+        public boolean isWaitForEvents() {
+            return waitForEvents;
+        }
+
+        /**
+         * The most builds deploying to the same environment of a server at once; 0 for no limit.
+         */
+        private int maxConcurrentDeploymentsPerEnvironment;
+        public int getMaxConcurrentDeploymentsPerEnvironment() {
+            return maxConcurrentDeploymentsPerEnvironment;
+        }
+
+        /**
+         * Check that the maxConcurrentDeploymentsPerEnvironment field is zero or a positive number.
+         * @param maxConcurrentDeploymentsPerEnvironment The most concurrent deployments per environment.
+         * @return Ok if zero or a positive number, error otherwise.
+         */
+        public FormValidation doCheckMaxConcurrentDeploymentsPerEnvironment(@QueryParameter String maxConcurrentDeploymentsPerEnvironment) {
+            return FormValidation.validateNonNegativeInteger(maxConcurrentDeploymentsPerEnvironment);
+        }
+
         public DescriptorImpl() {
             load();
             loadLegacyOctopusDeployServerConfig();
@@ -183,6 +208,9 @@ public class OctopusDeployPlugin extends GlobalPluginConfiguration {
                 servers = req.bindJSONToList(OctopusDeployServer.class, json.get("servers"));
             }
             setOctopusDeployServers(servers);
+            waitForEvents = json.optBoolean("waitForEvents");
+            maxConcurrentDeploymentsPerEnvironment = Math.max(json.optInt("maxConcurrentDeploymentsPerEnvironment", 0), 0);
+            OctopusValidationCache.clear();
 
             save();
             return super.configure(req, formData);
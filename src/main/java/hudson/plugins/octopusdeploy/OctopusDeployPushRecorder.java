@@ -0,0 +1,447 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.PackagesApi;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Descriptor;
+import hudson.model.Result;
+import hudson.remoting.VirtualChannel;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Publisher;
+import hudson.util.ComboBoxModel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+import org.jenkinsci.remoting.RoleChecker;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Pushes packages from the workspace to the Octopus built-in package repository.
+ * Packages are streamed from the workspace (on the agent, if the build ran on one) straight to Octopus,
+ * several at a time, and the throughput of each upload is written to the build log.
+ * Packages that Octopus already has with the same content are not uploaded again.
+ * An upload that is cut off is retried with a backoff, and progress is logged every {@link #PROGRESS_INTERVAL_BYTES}.
+ */
+public class OctopusDeployPushRecorder extends AbstractOctopusDeployRecorder implements Serializable {
+    // This value should be incremented every time that this serializable's contract changes
+    private static final long serialVersionUID = 1;
+    private static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 4;
+    private static final long MAX_RETRY_DELAY_SECONDS = 60;
+    /**
+     * How often upload progress is logged, 64 MB unless set with the
+     * hudson.plugins.octopusdeploy.OctopusDeployPushRecorder.progressIntervalMegabytes system property.
+     */
+    static final long PROGRESS_INTERVAL_BYTES = Integer.getInteger(OctopusDeployPushRecorder.class.getName() + ".progressIntervalMegabytes", 64) * 1024L * 1024L;
+
+    /**
+     * Ant-style patterns of the packages to push, relative to the workspace, separated by commas.
+     */
+    private final String packagePaths;
+    public String getPackagePaths() {
+        return packagePaths;
+    }
+
+    /**
+     * Whether to overwrite packages that already exist with the same id and version.
+     */
+    private final boolean replaceExisting;
+    public boolean getReplaceExisting() {
+        return replaceExisting;
+    }
+
+    /**
+     * The most packages to upload at the same time.
+     */
+    private final int maxConcurrentUploads;
+    public int getMaxConcurrentUploads() {
+        return maxConcurrentUploads;
+    }
+
+    /**
+     * How many times to send a package again after its upload is cut off or Octopus returns a server error.
+     */
+    private final int uploadRetries;
+    public int getUploadRetries() {
+        return uploadRetries;
+    }
+
+    @DataBoundConstructor
+    public OctopusDeployPushRecorder(String serverId, String packagePaths, boolean replaceExisting, int maxConcurrentUploads, int uploadRetries) {
+        this.serverId = serverId.trim();
+        this.packagePaths = packagePaths.trim();
+        this.replaceExisting = replaceExisting;
+        this.maxConcurrentUploads = maxConcurrentUploads > 0 ? maxConcurrentUploads : DEFAULT_MAX_CONCURRENT_UPLOADS;
+        this.uploadRetries = Math.max(uploadRetries, 0);
+    }
+
+    @Override
+    public boolean perform(AbstractBuild build, Launcher launcher, BuildListener listener) {
+        final Log log = new Log(listener);
+        if (Result.FAILURE.equals(build.getResult())) {
+            log.info("Not pushing packages due to job being in FAILED state.");
+            return true;
+        }
+
+        EnvVars envVars;
+        try {
+            envVars = build.getEnvironment(listener);
+        } catch (Exception ex) {
+            log.fatal(String.format("Failed to retrieve environment variables for this build - '%s'", ex.getMessage()));
+            return false;
+        }
+        EnvironmentVariableValueInjector envInjector = new EnvironmentVariableValueInjector(build.getBuildVariableResolver(), envVars);
+        String packagePaths = envInjector.injectEnvironmentVariableValues(this.packagePaths);
+
+        log.info("Started Octopus Package Push");
+        log.info("======================");
+        log.info("Packages: " + packagePaths);
+        log.info("Concurrent uploads: " + maxConcurrentUploads);
+        log.info("Upload retries: " + uploadRetries);
+        log.info("======================");
+
+        FilePath[] files;
+        try {
+            files = build.getWorkspace().list(packagePaths);
+        } catch (Exception ex) {
+            log.fatal(String.format("Unable to find packages matching '%s' - %s", packagePaths, ex.getMessage()));
+            return false;
+        }
+        if (files.length == 0) {
+            log.fatal(String.format("No packages match '%s'", packagePaths));
+            return false;
+        }
+
+        OctopusTimingSummary timings = OctopusTimingSummary.forBuild(build);
+        long phaseStart = System.nanoTime();
+        final PackagesApi packagesApi = getApi().getPackagesApi();
+        final Map<String, String> remoteHashes = getRemoteHashes(packagesApi, files, log);
+        final OctopusPushSummary summary = OctopusPushSummary.forBuild(build);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentUploads, files.length),
+                new NamingThreadFactory(new DaemonThreadFactory(), "OctopusDeployPush"));
+        boolean success = true;
+        try {
+            List<Future<Boolean>> uploads = new ArrayList<Future<Boolean>>();
+            for (final FilePath file : files) {
+                uploads.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return push(packagesApi, file, remoteHashes.get(PackagesApi.toBuiltInPackageId(file.getName())), summary, log);
+                    }
+                }));
+            }
+            for (Future<Boolean> upload : uploads) {
+                success &= upload.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.fatal("Package push was interrupted.");
+            return false;
+        } catch (ExecutionException ex) {
+            log.fatal(String.format("Package push failed - %s", ex.getCause().getMessage()));
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+        timings.record(OctopusTimingSummary.Phase.PackagePush, packagePaths, phaseStart, log);
+        return success;
+    }
+
+    /**
+     * Ask Octopus, in one request, for the hashes of the packages it already has with the same ids as these files.
+     * If that fails every package is uploaded, as if none existed.
+     */
+    private Map<String, String> getRemoteHashes(PackagesApi packagesApi, FilePath[] files, Log log) {
+        Set<String> ids = new LinkedHashSet<String>();
+        for (FilePath file : files) {
+            ids.add(PackagesApi.toBuiltInPackageId(file.getName()));
+        }
+        try {
+            return packagesApi.getPackageHashes(ids);
+        } catch (Exception ex) {
+            log.info(String.format("Unable to check for existing packages, pushing all of them - %s", ex.getMessage()));
+            return Collections.emptyMap();
+        }
+    }
+
+    private boolean push(PackagesApi packagesApi, FilePath file, String remoteHash, OctopusPushSummary summary, Log log) {
+        String name = file.getName();
+        try {
+            long length = file.length();
+            if (remoteHash != null && remoteHash.equalsIgnoreCase(file.act(new Sha1Callable()))) {
+                summary.record(name, length, true);
+                log.info(String.format("Skipped %s (%s) - unchanged in Octopus", name, formatBytes(length)));
+                return true;
+            }
+            long start = System.nanoTime();
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    upload(packagesApi, file, length, log);
+                    break;
+                } catch (IOException ex) {
+                    if (attempt >= uploadRetries) {
+                        throw ex;
+                    }
+                    long delay = Math.min(1L << attempt, MAX_RETRY_DELAY_SECONDS);
+                    log.info(String.format("Pushing %s failed - %s. Retrying in %d s (retry %d of %d)",
+                            name, ex.getMessage(), delay, attempt + 1, uploadRetries));
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(delay));
+                    if (isUploaded(packagesApi, file)) {
+                        log.info(String.format("%s reached Octopus before the connection failed", name));
+                        break;
+                    }
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            summary.record(name, length, false);
+            log.info(String.format("Pushed %s (%s) in %d ms - %s", name, formatBytes(length),
+                    TimeUnit.NANOSECONDS.toMillis(nanos), formatThroughput(length, nanos)));
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error(String.format("Pushing %s was interrupted", name));
+            return false;
+        } catch (Exception ex) {
+            log.error(String.format("Pushing %s failed - %s", name, ex.getMessage()));
+            return false;
+        }
+    }
+
+    private void upload(PackagesApi packagesApi, FilePath file, long length, Log log) throws IOException, InterruptedException {
+        InputStream in = new ProgressInputStream(file.read(), file.getName(), length, log);
+        try {
+            packagesApi.uploadPackage(file.getName(), in, length, replaceExisting);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Check whether an upload that failed part way actually made it, so that it is not sent again
+     * (which would be rejected when existing packages are not replaced).
+     */
+    private boolean isUploaded(PackagesApi packagesApi, FilePath file) {
+        String id = PackagesApi.toBuiltInPackageId(file.getName());
+        try {
+            String remoteHash = packagesApi.getPackageHashes(Collections.singleton(id)).get(id);
+            return remoteHash != null && remoteHash.equalsIgnoreCase(file.act(new Sha1Callable()));
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    static String formatThroughput(long bytes, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return formatBytes((long) (bytes / seconds)) + "/s";
+    }
+
+    /**
+     * Logs how far an upload has got, and its throughput over the last interval, every {@link #PROGRESS_INTERVAL_BYTES}.
+     */
+    private static final class ProgressInputStream extends FilterInputStream {
+        private final String name;
+        private final long length;
+        private final Log log;
+        private long read;
+        private long nextReport = PROGRESS_INTERVAL_BYTES;
+        private long intervalStartBytes;
+        private long intervalStart = System.nanoTime();
+
+        ProgressInputStream(InputStream in, String name, long length, Log log) {
+            super(in);
+            this.name = name;
+            this.length = length;
+            this.log = log;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                advance(count);
+            }
+            return count;
+        }
+
+        private void advance(int count) {
+            read += count;
+            if (read >= nextReport && read < length) {
+                long now = System.nanoTime();
+                log.info(String.format("Pushing %s - %s of %s (%d%%) at %s", name, formatBytes(read), formatBytes(length),
+                        read * 100 / length, formatThroughput(read - intervalStartBytes, now - intervalStart)));
+                nextReport += PROGRESS_INTERVAL_BYTES;
+                intervalStartBytes = read;
+                intervalStart = now;
+            }
+        }
+    }
+
+    /**
+     * Computes the SHA-1 hash of a package where it lives, so only the hash crosses the wire.
+     */
+    private static final class Sha1Callable implements FileCallable<String> {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        @Override
+        public String invoke(File f, VirtualChannel channel) throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IOException("SHA-1 is not available", ex);
+            }
+            InputStream in = new FileInputStream(f);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+
+        @Override
+        public void checkRoles(RoleChecker rc) throws SecurityException {
+
+        }
+    }
+
+    /**
+     * Descriptor for {@link OctopusDeployPushRecorder}. Used as a singleton.
+     * The class is marked as public so that it can be accessed from views.
+     */
+    @Extension
+    public static final class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+        public DescriptorImpl() {
+            load();
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "OctopusDeploy Package Push";
+        }
+
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject formData) throws Descriptor.FormException {
+            save();
+            return true;
+        }
+
+        public String getDefaultOctopusDeployServerId() {
+            OctopusDeployServer server = AbstractOctopusDeployRecorder.getDefaultOctopusDeployServer();
+            if (server != null) {
+                return server.getId();
+            }
+            return null;
+        }
+
+        /**
+         * Check that the serverId field is not empty.
+         * @param serverId The id of OctopusDeployServer in the configuration.
+         * @return Ok if not empty, error otherwise.
+         */
+        public FormValidation doCheckServerId(@QueryParameter String serverId) {
+            serverId = serverId.trim();
+            return OctopusValidator.validateServerId(serverId);
+        }
+
+        /**
+         * Check that the packagePaths field is not empty.
+         * @param packagePaths The package path patterns.
+         * @return Ok if not empty, error otherwise.
+         */
+        public FormValidation doCheckPackagePaths(@QueryParameter String packagePaths) {
+            if (packagePaths == null || packagePaths.trim().isEmpty()) {
+                return FormValidation.error("Please provide the packages to push.");
+            }
+            return FormValidation.ok();
+        }
+
+        /**
+         * Check that the maxConcurrentUploads field is a positive number.
+         * @param maxConcurrentUploads The most uploads at the same time.
+         * @return Ok if a positive number, error otherwise.
+         */
+        public FormValidation doCheckMaxConcurrentUploads(@QueryParameter String maxConcurrentUploads) {
+            return FormValidation.validatePositiveInteger(maxConcurrentUploads);
+        }
+
+        /**
+         * Check that the uploadRetries field is zero or a positive number.
+         * @param uploadRetries The number of times to retry a failed upload.
+         * @return Ok if zero or a positive number, error otherwise.
+         */
+        public FormValidation doCheckUploadRetries(@QueryParameter String uploadRetries) {
+            return FormValidation.validateNonNegativeInteger(uploadRetries);
+        }
+
+        /**
+         * Data binding that returns all configured Octopus server ids to be used in the serverId drop-down list.
+         * @return ComboBoxModel
+         */
+        public ComboBoxModel doFillServerIdItems() {
+            return new ComboBoxModel(getOctopusDeployServersIds());
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package hudson.plugins.octopusdeploy;
 
-import com.octopusdeploy.api.data.SelectedPackage;
-import com.octopusdeploy.api.data.DeploymentProcessTemplate;
 import com.octopusdeploy.api.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.*;
 
 import hudson.*;
@@ -18,7 +18,6 @@ import hudson.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.sf.json.*;
-import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.remoting.RoleChecker;
 import org.kohsuke.stapler.*;
 import org.kohsuke.stapler.export.*;
@@ -109,6 +108,16 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         return defaultPackageVersion;
     }
 
+    /**
+     * Resolve required packages that are not specified in the Package Configurations
+     * to the latest version in their feed, before falling back to the default package version
+     */
+    private final boolean resolveLatestPackageVersions;
+    @Exported
+    public boolean getResolveLatestPackageVersions() {
+        return resolveLatestPackageVersions;
+    }
+
     // Fields in config.jelly must match the parameter names in the "DataBoundConstructor"
     @DataBoundConstructor
     public OctopusDeployReleaseRecorder(
@@ -116,7 +125,7 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
             boolean releaseNotes, String releaseNotesSource, String releaseNotesFile,
             boolean deployThisRelease, String environment, String tenant, String channel, boolean waitForDeployment,
             List<PackageConfiguration> packageConfigs, boolean jenkinsUrlLinkback,
-            String defaultPackageVersion) {
+            String defaultPackageVersion, boolean resolveLatestPackageVersions) {
 
         this.serverId = serverId.trim();
         this.project = project.trim();
@@ -132,6 +141,7 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         this.waitForDeployment = waitForDeployment;
         this.releaseNotesJenkinsLinkback = jenkinsUrlLinkback;
         this.defaultPackageVersion = defaultPackageVersion;
+        this.resolveLatestPackageVersions = resolveLatestPackageVersions;
     }
 
     @Override
@@ -169,9 +179,11 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         String channel = envInjector.injectEnvironmentVariableValues(this.channel);
         String defaultPackageVersion = envInjector.injectEnvironmentVariableValues(this.defaultPackageVersion);
 
+        OctopusTimingSummary timings = OctopusTimingSummary.forBuild(build);
+        long phaseStart = System.nanoTime();
         com.octopusdeploy.api.data.Project p = null;
         try {
-            p = getApi().getProjectsApi().getProjectByName(project);
+            p = getMetadataCache().getProjectByName(project);
         } catch (Exception ex) {
             log.fatal(String.format("Retrieving project name '%s' failed with message '%s'",
                 project, ex.getMessage()));
@@ -185,7 +197,7 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         com.octopusdeploy.api.data.Channel c = null;
         if (channel != null && !channel.isEmpty()) {
             try {
-                c = getApi().getChannelsApi().getChannelByName(p.getId(), channel);
+                c = getMetadataCache().getChannelByName(p.getId(), channel);
             } catch (Exception ex) {
                 log.fatal(String.format("Retrieving channel name '%s' from project '%s' failed with message '%s'",
                     channel, project, ex.getMessage()));
@@ -196,6 +208,9 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 success = false;
             }
         }
+        if (success) {
+            timings.record(OctopusTimingSummary.Phase.Lookup, project, phaseStart, log);
+        }
         // Check packageVersion
         String releaseNotesContent = "";
 
@@ -231,31 +246,18 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
             return success;
         }
 
-        Set<SelectedPackage> selectedPackages = getCombinedPackageList(p.getId(), packageConfigs, envInjector.injectEnvironmentVariableValues(defaultPackageVersion), log, envInjector);
-
         try {
-            // Sanitize the release notes in preparation for JSON
-            releaseNotesContent = JSONSanitizer.getInstance().sanitize(releaseNotesContent);
-            String channelId = null;
-            if (c != null) {
-                channelId = c.getId();
-            }
-            String results = getApi().getReleasesApi().createRelease(p.getId(), releaseVersion, channelId, releaseNotesContent, selectedPackages);
-            JSONObject json = (JSONObject)JSONSerializer.toJSON(results);
-            String urlSuffix = json.getJSONObject("Links").getString("Web");
-            String url = getOctopusDeployServer().getUrl();
-            if (url.endsWith("/")) {
-                url = url.substring(0, url.length() - 1);
-            }
-            log.info("Release created: \n\t" + url + urlSuffix);
-            build.addAction(new BuildInfoSummary(BuildInfoSummary.OctopusDeployEventType.Release, url + urlSuffix));
+            String releaseUrl = new OctopusReleaseCreator(getOctopusDeployServer(), packageConfigs, resolveLatestPackageVersions)
+                    .createRelease(p, c, releaseVersion, releaseNotesContent, defaultPackageVersion, envInjector, timings, log);
+            log.info("Release created: \n\t" + releaseUrl);
+            build.addAction(new BuildInfoSummary(BuildInfoSummary.OctopusDeployEventType.Release, releaseUrl));
         } catch (Exception ex) {
             log.fatal("Failed to create release: " + ex.getMessage());
             success = false;
         }
 
         if (success && deployThisRelease) {
-          OctopusDeployDeploymentRecorder deployment = new OctopusDeployDeploymentRecorder(getServerId(), project, releaseVersion, environment, tenant, "", waitForDeployment);
+          OctopusDeployDeploymentRecorder deployment = new OctopusDeployDeploymentRecorder(getServerId(), project, releaseVersion, environment, tenant, "", 0, 0, 0, 100, "", waitForDeployment);
           success = deployment.perform(build, launcher, listener);
         }
 
@@ -295,67 +297,6 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         log.info("=======================");
     }
 
-    /**
-     * Gets a package list that is a combination of the default packages (taken from the Octopus template)
-     * and the packages selected. Selected package version overwrite the default package version for a given package
-     * @param projectId
-     * @param selectedPackages
-     * @param defaultPackageVersion
-     * @return A set that combines the default packages and selected packages
-     */
-    private Set<SelectedPackage> getCombinedPackageList(String projectId, List<PackageConfiguration> selectedPackages,
-            String defaultPackageVersion, Log log, EnvironmentVariableValueInjector envInjector)
-    {
-        Set<SelectedPackage> combinedList = new HashSet<>();
-
-        //Get all selected package names for easier lookup later
-        Map<String, SelectedPackage> selectedNames = new HashMap<>();
-        if (selectedPackages != null) {
-            for (PackageConfiguration pkgConfig : selectedPackages) {
-                SelectedPackage sp = new SelectedPackage(envInjector.injectEnvironmentVariableValues(pkgConfig.getPackageName()), null, pkgConfig.getPackageReferenceName(), envInjector.injectEnvironmentVariableValues(pkgConfig.getPackageVersion()));
-                selectedNames.put(envInjector.injectEnvironmentVariableValues(pkgConfig.getPackageName()), sp);
-                combinedList.add(sp);
-            }
-        }
-
-        DeploymentProcessTemplate defaultPackages = null;
-        //If not default version specified, ignore all default packages
-        try {
-            defaultPackages = getApi().getDeploymentsApi().getDeploymentProcessTemplateForProject(projectId);
-        } catch (Exception ex) {
-            //Default package retrieval unsuccessful
-            log.info(String.format("Could not retrieve default package list for project id: %s. No default packages will be used", projectId));
-        }
-
-        if (defaultPackages != null) {
-            for (SelectedPackage selPkg : defaultPackages.getSteps()) {
-                String stepName = selPkg.getStepName();
-                String packageId = selPkg.getPackageId();
-                String packageReferenceName = selPkg.getPackageReferenceName();
-
-                //Only add if it was not a selected package
-                if (!selectedNames.containsKey(stepName)) {
-                    //If packageId specified replace by stepName retrieved from DeploymentProcessTemplate
-                    //Emulates same behaviour as octo.client project https://octopus.com/docs/api-and-integration/octo.exe-command-line/creating-releases
-                    if (selectedNames.containsKey(packageId)) {
-                        SelectedPackage sc = selectedNames.get(packageId);
-                        sc.setStepName(stepName);
-                    } else {
-                        //Get the default version, if not specified, warn
-                        if (defaultPackageVersion != null && !defaultPackageVersion.isEmpty()) {
-                            combinedList.add(new SelectedPackage(stepName, null, packageReferenceName, defaultPackageVersion));
-                            log.info(String.format("Using default version (%s) of package %s", defaultPackageVersion, stepName));
-                        } else {
-                            log.error(String.format("Required package %s not included because package is not in Package Configuration list and no default package version defined", stepName));
-                        }
-                    }
-                }
-            }
-        }
-
-        return combinedList;
-    }
-
     /**
      * Return the release notes contents from a file.
      * @param build our build
@@ -365,22 +306,91 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
      */
     private String getReleaseNotesFromFile(AbstractBuild build, String releaseNotesFilename) throws IOException, InterruptedException {
         FilePath path = new FilePath(build.getWorkspace(), releaseNotesFilename);
-        return path.act(new ReadFileCallable());
+        byte[] compressed = path.act(new ReadFileCallable(ReleaseNotesBuilder.DEFAULT_MAX_LENGTH));
+        Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(compressed)), StandardCharsets.UTF_8);
+        try {
+            StringWriter notes = new StringWriter();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                notes.write(buffer, 0, read);
+            }
+            return notes.toString();
+        } finally {
+            reader.close();
+        }
     }
 
     /**
      * This callable allows us to read files from other nodes - ie. Jenkins slaves.
+     * The file is streamed in fixed size chunks, cut off after maxLength characters and sent back gzipped,
+     * so a huge file never has to fit in memory on either side.
      */
-    private static final class ReadFileCallable implements FileCallable<String> {
-        public final static String ERROR_READING = "<Error Reading File>";
+    private static final class ReadFileCallable implements FileCallable<byte[]> {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        private final int maxLength;
+
+        ReadFileCallable(int maxLength) {
+            this.maxLength = maxLength;
+        }
 
         @Override
-        public String invoke(File f, VirtualChannel channel) {
+        public byte[] invoke(File f, VirtualChannel channel) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            BufferedReader reader;
             try {
-                return StringUtils.join(Files.readAllLines(f.toPath(), StandardCharsets.UTF_8), "\n");
+                reader = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8);
             } catch (IOException ex) {
-                return ERROR_READING;
+                throw new IOException(String.format("Unable to open release notes file %s", f), ex);
             }
+            try {
+                Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8);
+                try {
+                    char[] buffer = new char[8192];
+                    StringBuilder chunk = new StringBuilder(buffer.length);
+                    int length = 0;
+                    // Line breaks are held back until more text follows, so trailing ones are dropped,
+                    // and \r\n and \r become \n
+                    int newlines = 0;
+                    boolean afterCr = false;
+                    boolean truncated = false;
+                    int read;
+                    while (!truncated && (read = reader.read(buffer)) != -1) {
+                        for (int i = 0; i < read; i++) {
+                            char c = buffer[i];
+                            if (c == '\r' || c == '\n') {
+                                if (c == '\r' || !afterCr) {
+                                    newlines++;
+                                }
+                                afterCr = c == '\r';
+                                continue;
+                            }
+                            afterCr = false;
+                            if (length + newlines + 1 > maxLength) {
+                                chunk.append(String.format("%s[Release notes file truncated at %d characters]", length == 0 ? "" : "\n", maxLength));
+                                truncated = true;
+                                break;
+                            }
+                            length += newlines + 1;
+                            for (; newlines > 0; newlines--) {
+                                chunk.append('\n');
+                            }
+                            chunk.append(c);
+                        }
+                        writer.append(chunk);
+                        chunk.setLength(0);
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException ex) {
+                throw new IOException(String.format("Unable to read release notes file %s", f), ex);
+            } finally {
+                reader.close();
+            }
+            return compressed.toByteArray();
         }
 
         @Override
@@ -391,57 +401,44 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
 
     /**
      * Attempt to load release notes info from SCM.
+     * Walks back from this build to the last successful build, newest first, and stops once the release notes
+     * are full, so the cost is bounded after a long run of failed builds. Only this build's changes are used
+     * when there is no successful build older than it.
      * @param build the jenkins build
      * @return release notes as a single string
      */
-    private String getReleaseNotesFromScm(AbstractBuild build) {
-        StringBuilder notes = new StringBuilder();
-        AbstractProject project = build.getProject();
-        AbstractBuild lastSuccessfulBuild = (AbstractBuild)project.getLastSuccessfulBuild();
-        AbstractBuild currentBuild = null;
-        if (lastSuccessfulBuild == null) {
-            AbstractBuild lastBuild = (AbstractBuild)project.getLastBuild();
-            currentBuild = lastBuild;
-        }
-        else
-        {
-            currentBuild = lastSuccessfulBuild.getNextBuild();
-        }
-        if (currentBuild != null) {
-            while (currentBuild != build)
-            {
-                String currBuildNotes = convertChangeSetToString(currentBuild);
-                if (!currBuildNotes.isEmpty()) {
-                    notes.append(currBuildNotes);
-                }
-
-                currentBuild = currentBuild.getNextBuild();
-            }
-            // Also include the current build
-            String currBuildNotes = convertChangeSetToString(build);
-            if (!currBuildNotes.isEmpty()) {
-                notes.append(currBuildNotes);
+    static String getReleaseNotesFromScm(AbstractBuild build) {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder();
+        Run lastSuccessfulBuild = build.getProject().getLastSuccessfulBuild();
+        int lastSuccessfulNumber = lastSuccessfulBuild == null ? build.getNumber() : lastSuccessfulBuild.getNumber();
+        AbstractBuild currentBuild = build;
+        while (addChangeSet(notes, currentBuild)) {
+            currentBuild = (AbstractBuild)currentBuild.getPreviousBuild();
+            if (currentBuild == null || currentBuild.getNumber() <= lastSuccessfulNumber) {
+                break;
             }
         }
-
         return notes.toString();
     }
 
     /**
-     * Convert a build's change set to a string, each entry on a new line
+     * Add a build's change set to the release notes, each entry on a new line
+     * @param notes the release notes being built
      * @param build The build to poll changesets from
-     * @return The changeset as a string
+     * @return false if the release notes are full
      */
-    private String convertChangeSetToString(AbstractBuild build) {
-        StringBuilder allChangeNotes = new StringBuilder();
-        if (build != null) {
-            ChangeLogSet<? extends ChangeLogSet.Entry> changeSet = build.getChangeSet();
-            for (Object item : changeSet.getItems()) {
-                ChangeLogSet.Entry entry = (ChangeLogSet.Entry) item;
-                allChangeNotes.append(entry.getMsg()).append("\n");
+    private static boolean addChangeSet(ReleaseNotesBuilder notes, AbstractBuild build) {
+        if (!notes.startOlderBuild()) {
+            return false;
+        }
+        ChangeLogSet<? extends ChangeLogSet.Entry> changeSet = build.getChangeSet();
+        for (Object item : changeSet.getItems()) {
+            ChangeLogSet.Entry entry = (ChangeLogSet.Entry) item;
+            if (!notes.add(entry.getCommitId(), entry.getMsg())) {
+                return false;
             }
         }
-        return allChangeNotes.toString();
+        return true;
     }
 
     /**
@@ -468,10 +465,6 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
             return true;
         }
 
-        private OctopusApi getApiByServerId(String serverId){
-            return AbstractOctopusDeployRecorder.getOctopusDeployServer(serverId).getApi();
-        }
-
         public String getDefaultOctopusDeployServerId() {
             OctopusDeployServer server = AbstractOctopusDeployRecorder.getDefaultOctopusDeployServer();
             if(server != null){
@@ -504,9 +497,12 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
-            OctopusValidator validator = new OctopusValidator(api);
-            return validator.validateProject(project);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
+            FormValidation validation = validator.validateProject(project);
+            if (validation.kind != FormValidation.Kind.ERROR) {
+                return validation;
+            }
+            return withListHint(validation, getMetadataCache(serverId).getIndex().getProjectNames());
         }
 
         /**
@@ -525,8 +521,7 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
-            OctopusValidator validator = new OctopusValidator(api);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
             return validator.validateChannel(channel, project);
         }
         
@@ -544,13 +539,12 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             if (project == null || project.isEmpty()) {
                 return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
             }
             com.octopusdeploy.api.data.Project p;
             try {
-                p = api.getProjectsApi().getProjectByName(project);
+                p = getMetadataCache(serverId).getProjectByName(project);
                 if (p == null) {
                     return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
                 }
@@ -558,7 +552,7 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return FormValidation.warning(PROJECT_RELEASE_VALIDATION_MESSAGE);
             }
 
-            OctopusValidator validator = new OctopusValidator(api);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
             return validator.validateRelease(releaseVersion, p.getId(), OctopusValidator.ReleaseExistenceRequirement.MustNotExist);
         }
 
@@ -588,9 +582,12 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return FormValidation.warning(SERVER_ID_VALIDATION_MESSAGE);
             }
 
-            OctopusApi api = getApiByServerId(serverId);
-            OctopusValidator validator = new OctopusValidator(api);
-            return validator.validateEnvironment(environment);
+            OctopusValidator validator = new OctopusValidator(getOctopusDeployServer(serverId));
+            FormValidation validation = validator.validateEnvironment(environment);
+            if (validation.kind != FormValidation.Kind.ERROR) {
+                return validation;
+            }
+            return withListHint(validation, getMetadataCache(serverId).getIndex().getEnvironmentNames());
         }
 
         /**
@@ -602,75 +599,57 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
         }
 
         /**
-         * Data binding that returns all possible environment names to be used in the environment autocomplete.
+         * Data binding that returns the cached environment names to be used in the environment autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillEnvironmentItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Environment> environments = api.getEnvironmentsApi().getAllEnvironments();
-                for (com.octopusdeploy.api.data.Environment env : environments) {
-                    names.add(env.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getEnvironmentNames());
             } catch (Exception ex) {
-                Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, "Filling environments combo failed!", ex);
+                Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
 
         /**
-         * Data binding that returns all possible tenant names to be used in the tenant autocomplete.
+         * Data binding that returns the cached tenant names to be used in the tenant autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillTenantItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Tenant> tenants = api.getTenantsApi().getAllTenants();
-                for (com.octopusdeploy.api.data.Tenant ten : tenants) {
-                    names.add(ten.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getTenantNames());
             } catch (Exception ex) {
-                Logger.getLogger(OctopusDeployDeploymentRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
         
         /**
-         * Data binding that returns all possible project names to be used in the project autocomplete.
+         * Data binding that returns the cached project names to be used in the project autocomplete.
          * @param serverId The id of OctopusDeployServer in the configuration.
          * @return ComboBoxModel
          */
         public ComboBoxModel doFillProjectItems(@QueryParameter String serverId) {
-            ComboBoxModel names = new ComboBoxModel();
-
             if (doCheckServerId(serverId).kind != FormValidation.Kind.OK) {
-                return names;
+                return new ComboBoxModel();
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             try {
-                Set<com.octopusdeploy.api.data.Project> projects = api.getProjectsApi().getAllProjects();
-                for (com.octopusdeploy.api.data.Project proj : projects) {
-                    names.add(proj.getName());
-                }
+                return listNames(getMetadataCache(serverId).getIndex().getProjectNames());
             } catch (Exception ex) {
-                Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, "Filling projects combo failed!", ex);
+                Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, null, ex);
+                return new ComboBoxModel();
             }
-            return names;
         }
         
         /**
@@ -686,15 +665,13 @@ public class OctopusDeployReleaseRecorder extends AbstractOctopusDeployRecorder
                 return names;
             }
 
-            OctopusApi api = getApiByServerId(serverId);
             if (project != null && !project.isEmpty()) {
                 try {
-                    com.octopusdeploy.api.data.Project p = api.getProjectsApi().getProjectByName(project);
+                    OctopusMetadataCache cache = getMetadataCache(serverId);
+                    com.octopusdeploy.api.data.Project p = cache.getProjectByName(project);
                     if (p != null) {
-                        Set<com.octopusdeploy.api.data.Channel> channels = api.getChannelsApi().getChannelsByProjectId(p.getId());
-                        for (com.octopusdeploy.api.data.Channel channel : channels) {
-                            names.add(channel.getName());
-                        }
+                        OctopusNameIndex channelNames = cache.getChannelNames(p.getId());
+                        names.addAll(channelNames.startingWith(null, channelNames.size()));
                     }
                 } catch (Exception ex) {
                     Logger.getLogger(OctopusDeployReleaseRecorder.class.getName()).log(Level.SEVERE, "Filling Channel combo failed!", ex);
@@ -0,0 +1,165 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.Util;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many builds deploy to the same environment of the same Octopus server at once, across all jobs.
+ * Builds over the limit wait in Jenkins, first come first served, instead of piling tasks onto the Octopus queue.
+ * Waiting builds log their place in the queue every {@link #PROGRESS_SECONDS} seconds.
+ * A build holds its slot from creating the deployment until it stops waiting for it.
+ */
+public final class OctopusDeploymentGate {
+    private static final long PROGRESS_SECONDS = 30;
+    private static final ConcurrentMap<String, Gate> gates = new ConcurrentHashMap<String, Gate>();
+
+    private OctopusDeploymentGate() {
+    }
+
+    /**
+     * Wait for a deployment slot on an environment.
+     * @param server the Octopus server
+     * @param environmentId the environment id
+     * @param environmentName the environment name, for the log
+     * @param limit the most concurrent deployments to the environment; 0 or less for no limit
+     * @param log the build log, told when and for how long the build waits
+     * @return the slot, to be closed when the deployment is no longer being waited on
+     * @throws InterruptedException if the build is interrupted while waiting
+     */
+    public static Permit acquire(OctopusDeployServer server, String environmentId, String environmentName, int limit, Log log) throws InterruptedException {
+        if (limit <= 0) {
+            return new Permit(null);
+        }
+        return getGate(server, environmentId, limit).acquire(environmentName, log);
+    }
+
+    /**
+     * Take a deployment slot on an environment if one is free and no build is queued for it, without waiting.
+     * Used by callers that track many deployments in one loop and must not block while holding other slots.
+     * @param server the Octopus server
+     * @param environmentId the environment id
+     * @param limit the most concurrent deployments to the environment; 0 or less for no limit
+     * @return the slot, or null if there is none free
+     */
+    public static Permit tryAcquire(OctopusDeployServer server, String environmentId, int limit) {
+        if (limit <= 0) {
+            return new Permit(null);
+        }
+        return getGate(server, environmentId, limit).tryAcquire();
+    }
+
+    private static Gate getGate(OctopusDeployServer server, String environmentId, int limit) {
+        String key = Util.getDigestOf(server.getId() + "\n" + server.getUrl() + "\n" + environmentId);
+        Gate gate = gates.get(key);
+        if (gate == null || gate.limit != limit) {
+            // a changed limit takes effect for new deployments; builds holding slots release them to the old gate
+            Gate created = new Gate(limit);
+            if (gate == null) {
+                gate = gates.putIfAbsent(key, created);
+                if (gate == null) {
+                    gate = created;
+                }
+            } else {
+                gates.put(key, created);
+                gate = created;
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * The slots of one environment, handed out strictly in arrival order.
+     */
+    private static final class Gate {
+        private final int limit;
+        private final Deque<Object> queue = new ArrayDeque<Object>();
+        private int inUse;
+
+        Gate(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized Permit acquire(String environmentName, Log log) throws InterruptedException {
+            Object ticket = new Object();
+            queue.addLast(ticket);
+            if (!isTurn(ticket)) {
+                log.info(String.format("Waiting for a deployment slot on %s - %d of %d in use, %d build(s) queued ahead",
+                        environmentName, inUse, limit, queue.size() - 1));
+                long waitStart = System.nanoTime();
+                long nextProgress = waitStart + TimeUnit.SECONDS.toNanos(PROGRESS_SECONDS);
+                try {
+                    while (!isTurn(ticket)) {
+                        wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextProgress - System.nanoTime())));
+                        if (!isTurn(ticket) && System.nanoTime() >= nextProgress) {
+                            log.info(String.format("Still waiting for a deployment slot on %s after %d s - %d build(s) queued ahead",
+                                    environmentName, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - waitStart), position(ticket)));
+                            nextProgress += TimeUnit.SECONDS.toNanos(PROGRESS_SECONDS);
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    queue.remove(ticket);
+                    notifyAll();
+                    throw ex;
+                }
+                log.info(String.format("Got a deployment slot on %s after %d s", environmentName,
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - waitStart)));
+            }
+            queue.removeFirst();
+            inUse++;
+            notifyAll(); // the next in line may also fit
+            return new Permit(this);
+        }
+
+        synchronized Permit tryAcquire() {
+            if (!queue.isEmpty() || inUse >= limit) {
+                return null;
+            }
+            inUse++;
+            return new Permit(this);
+        }
+
+        synchronized void release() {
+            inUse--;
+            notifyAll();
+        }
+
+        private boolean isTurn(Object ticket) {
+            return queue.peekFirst() == ticket && inUse < limit;
+        }
+
+        private int position(Object ticket) {
+            int ahead = 0;
+            for (Object queued : queue) {
+                if (queued == ticket) {
+                    break;
+                }
+                ahead++;
+            }
+            return ahead;
+        }
+    }
+
+    /**
+     * A deployment slot; closing it lets the next queued build in.
+     */
+    public static final class Permit implements Closeable {
+        private Gate gate;
+
+        private Permit(Gate gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (gate != null) {
+                gate.release();
+                gate = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.NamedResource;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, array-backed table of Octopus resources sorted by name ignoring case.
+ * Names are looked up with a binary search over the same array that backs the name index,
+ * so a table costs two arrays instead of a hash map entry per resource.
+ * @param <T> the resource type
+ */
+final class OctopusEntityTable<T extends NamedResource> extends AbstractList<T> {
+    private static final Comparator<NamedResource> BY_NAME = new Comparator<NamedResource>() {
+        @Override
+        public int compare(NamedResource a, NamedResource b) {
+            return String.CASE_INSENSITIVE_ORDER.compare(a.getName(), b.getName());
+        }
+    };
+
+    private final NamedResource[] resources;
+    private final OctopusNameIndex names;
+
+    private OctopusEntityTable(NamedResource[] resources, String[] names) {
+        this.resources = resources;
+        this.names = OctopusNameIndex.wrap(names);
+    }
+
+    /**
+     * Build a table; resources without a name are skipped, and of several with the same name the last one is kept.
+     * @param resources the resources to index
+     * @param <T> the resource type
+     * @return the table
+     */
+    static <T extends NamedResource> OctopusEntityTable<T> of(Collection<? extends T> resources) {
+        Map<String, NamedResource> byName = new LinkedHashMap<String, NamedResource>();
+        for (T resource : resources) {
+            if (resource != null && resource.getName() != null) {
+                byName.put(resource.getName(), resource);
+            }
+        }
+        NamedResource[] sorted = byName.values().toArray(new NamedResource[byName.size()]);
+        Arrays.sort(sorted, BY_NAME);
+        String[] sortedNames = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sortedNames[i] = sorted[i].getName();
+        }
+        return new OctopusEntityTable<T>(sorted, sortedNames);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        return (T) resources[i];
+    }
+
+    @Override
+    public int size() {
+        return resources.length;
+    }
+
+    /**
+     * The names in this table, sharing its sorted array.
+     * @return the name index
+     */
+    OctopusNameIndex getNames() {
+        return names;
+    }
+
+    /**
+     * Look up a resource by name.
+     * @param name the name
+     * @param ignoreCase whether a name that differs only in case matches when there is no exact match
+     * @return the resource, or null if there is none with that name
+     */
+    @SuppressWarnings("unchecked")
+    T getByName(String name, boolean ignoreCase) {
+        if (name == null) {
+            return null;
+        }
+        int first = names.lowerBound(name);
+        for (int i = first; i < resources.length && resources[i].getName().equalsIgnoreCase(name); i++) {
+            if (resources[i].getName().equals(name)) {
+                return (T) resources[i];
+            }
+        }
+        if (ignoreCase && first < resources.length && resources[first].getName().equalsIgnoreCase(name)) {
+            return (T) resources[first];
+        }
+        return null;
+    }
+}
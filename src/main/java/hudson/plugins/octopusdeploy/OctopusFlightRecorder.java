@@ -0,0 +1,207 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.ApiCall;
+import com.octopusdeploy.api.ApiCallListener;
+import com.octopusdeploy.api.AuthenticatedWebClient;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Emits Java Flight Recorder events for Octopus API calls and deployment waits, so that
+ * time spent on Octopus can be correlated with GC and thread activity in a single recording.
+ * The plugin is built for Java 7, so the events are defined at runtime through jdk.jfr.EventFactory.
+ * On JVMs without JFR every method here is a no-op.
+ * Events (all in the "Octopus Deploy" category):
+ *  octopusdeploy.ApiCall - method, endpoint template, status and response bytes of each request
+ *  octopusdeploy.DeploymentWait - the whole wait for a deployment task, with its final state
+ *  octopusdeploy.TaskStateChange - each observed state transition of a deployment task
+ */
+public final class OctopusFlightRecorder implements ApiCallListener {
+    private static final Logger LOGGER = Logger.getLogger(OctopusFlightRecorder.class.getName());
+
+    private static final EventType API_CALL = EventType.define("octopusdeploy.ApiCall", "Octopus API Call",
+            new Field(String.class, "method", "Method"),
+            new Field(String.class, "endpoint", "Endpoint Template"),
+            new Field(int.class, "status", "Status Code"),
+            new Field(long.class, "bytes", "Response Bytes"));
+
+    private static final EventType DEPLOYMENT_WAIT = EventType.define("octopusdeploy.DeploymentWait", "Octopus Deployment Wait",
+            new Field(String.class, "taskId", "Task Id"),
+            new Field(String.class, "state", "Final State"));
+
+    private static final EventType TASK_STATE_CHANGE = EventType.define("octopusdeploy.TaskStateChange", "Octopus Task State Change",
+            new Field(String.class, "taskId", "Task Id"),
+            new Field(String.class, "previousState", "Previous State"),
+            new Field(String.class, "state", "State"));
+
+    private static final Object EVENT_KEY = new Object();
+
+    private OctopusFlightRecorder() {
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void registerApiCallListener() {
+        if (API_CALL.isAvailable()) {
+            AuthenticatedWebClient.addApiCallListener(new OctopusFlightRecorder());
+        }
+    }
+
+    @Override
+    public void callStarted(ApiCall call) {
+        Object event = API_CALL.begin();
+        if (event != null) {
+            call.putAttachment(EVENT_KEY, event);
+        }
+    }
+
+    @Override
+    public void callFinished(ApiCall call) {
+        API_CALL.commit(call.getAttachment(EVENT_KEY),
+                call.getMethod(), call.getEndpointTemplate(), call.getResponseCode(), call.getResponseBytes());
+    }
+
+    /**
+     * Start timing a wait for a deployment task.
+     * @return an event to pass to endDeploymentWait, or null if JFR is unavailable
+     */
+    public static Object beginDeploymentWait() {
+        return DEPLOYMENT_WAIT.begin();
+    }
+
+    /**
+     * Finish timing a wait for a deployment task.
+     * @param event the event returned by beginDeploymentWait
+     * @param taskId the Octopus task id
+     * @param state the last observed state of the task
+     */
+    public static void endDeploymentWait(Object event, String taskId, String state) {
+        DEPLOYMENT_WAIT.commit(event, taskId, state);
+    }
+
+    /**
+     * Record that a deployment task was observed in a new state.
+     * @param taskId the Octopus task id
+     * @param previousState the state seen on the previous poll, or null on the first poll
+     * @param state the state seen now
+     */
+    public static void taskStateChanged(String taskId, String previousState, String state) {
+        TASK_STATE_CHANGE.commit(TASK_STATE_CHANGE.begin(), taskId, previousState, state);
+    }
+
+    /**
+     * A field of a dynamically defined event.
+     */
+    private static final class Field {
+        private final Class<?> type;
+        private final String name;
+        private final String label;
+
+        Field(Class<?> type, String name, String label) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+        }
+    }
+
+    /**
+     * A JFR event type created through jdk.jfr.EventFactory by reflection.
+     */
+    private static final class EventType {
+        private final Object factory;
+        private final Method newEvent;
+        private final Method begin;
+        private final Method end;
+        private final Method set;
+        private final Method commit;
+
+        private EventType(Object factory, Method newEvent, Method begin, Method end, Method set, Method commit) {
+            this.factory = factory;
+            this.newEvent = newEvent;
+            this.begin = begin;
+            this.end = end;
+            this.set = set;
+            this.commit = commit;
+        }
+
+        static EventType define(String name, String label, Field... fields) {
+            try {
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+                Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+                Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                Class<?> nameAnnotation = Class.forName("jdk.jfr.Name");
+                Class<?> labelAnnotation = Class.forName("jdk.jfr.Label");
+                Class<?> categoryAnnotation = Class.forName("jdk.jfr.Category");
+
+                List<Object> eventAnnotations = new ArrayList<Object>();
+                eventAnnotations.add(annotationElement.newInstance(nameAnnotation, name));
+                eventAnnotations.add(annotationElement.newInstance(labelAnnotation, label));
+                eventAnnotations.add(annotationElement.newInstance(categoryAnnotation, new String[] {"Octopus Deploy"}));
+
+                List<Object> eventFields = new ArrayList<Object>();
+                for (Field field : fields) {
+                    List<Object> fieldAnnotations = Collections.singletonList(annotationElement.newInstance(labelAnnotation, field.label));
+                    eventFields.add(valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+                }
+
+                Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+                Object factory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, eventAnnotations, eventFields);
+                Class<?> eventClass = Class.forName("jdk.jfr.Event");
+                return new EventType(factory,
+                        eventFactoryClass.getMethod("newEvent"),
+                        eventClass.getMethod("begin"),
+                        eventClass.getMethod("end"),
+                        eventClass.getMethod("set", int.class, Object.class),
+                        eventClass.getMethod("commit"));
+            } catch (ClassNotFoundException ex) {
+                LOGGER.log(Level.FINE, "Java Flight Recorder is not available, {0} events are disabled", name);
+            } catch (Exception ex) {
+                LOGGER.log(Level.WARNING, "Unable to define Java Flight Recorder event " + name, ex);
+            } catch (LinkageError ex) {
+                LOGGER.log(Level.WARNING, "Unable to define Java Flight Recorder event " + name, ex);
+            }
+            return new EventType(null, null, null, null, null, null);
+        }
+
+        boolean isAvailable() {
+            return factory != null;
+        }
+
+        Object begin() {
+            if (factory == null) {
+                return null;
+            }
+            try {
+                Object event = newEvent.invoke(factory);
+                begin.invoke(event);
+                return event;
+            } catch (Exception ex) {
+                LOGGER.log(Level.FINE, "Unable to begin Java Flight Recorder event", ex);
+                return null;
+            }
+        }
+
+        void commit(Object event, Object... values) {
+            if (event == null) {
+                return;
+            }
+            try {
+                end.invoke(event);
+                for (int i = 0; i < values.length; i++) {
+                    set.invoke(event, i, values[i]);
+                }
+                commit.invoke(event);
+            } catch (Exception ex) {
+                LOGGER.log(Level.FINE, "Unable to commit Java Flight Recorder event " + Arrays.toString(values), ex);
+            }
+        }
+    }
+}
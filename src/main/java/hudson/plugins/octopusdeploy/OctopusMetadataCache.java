@@ -0,0 +1,635 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.OctopusApi;
+import com.octopusdeploy.api.data.Channel;
+import com.octopusdeploy.api.data.DeploymentProcessTemplate;
+import com.octopusdeploy.api.data.Environment;
+import com.octopusdeploy.api.data.Project;
+import com.octopusdeploy.api.data.Tenant;
+import com.octopusdeploy.api.data.Variable;
+import hudson.Util;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+
+/**
+ * Keeps the projects, environments, tenants and channels of an Octopus server in memory,
+ * backed by a snapshot under JENKINS_HOME/octopusdeploy-metadata so that it survives restarts.
+ * The snapshot is loaded on first use and then revalidated against Octopus in the background,
+ * so builds and config pages after a restart are answered without a round trip to Octopus.
+ * Names that are not in the index fall through to a live fetch of projects, environments and tenants,
+ * at most once a minute by default (missRefreshSeconds), so a mistyped name does not cost a fetch on every build.
+ * Deployment process templates and the prompted variables of releases are kept in memory only.
+ * Refreshes refetch the channels and templates of projects used in the last hour (recentUseMinutes) only;
+ * those of other projects are dropped and fetched again when next needed.
+ * Background refreshes run one at a time on a dedicated thread.
+ * Reads are stale-while-revalidate: once the index is older than the max age (10 minutes by default,
+ * set with the hudson.plugins.octopusdeploy.OctopusMetadataCache.maxAgeMinutes system property)
+ * it is still returned, and a background refresh is started.
+ */
+public final class OctopusMetadataCache {
+    private static final Logger LOGGER = Logger.getLogger(OctopusMetadataCache.class.getName());
+    private static final String SNAPSHOT_DIRECTORY = "octopusdeploy-metadata";
+    private static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(
+            Integer.getInteger(OctopusMetadataCache.class.getName() + ".maxAgeMinutes", 10));
+    private static final long MISS_REFRESH_MILLIS = TimeUnit.SECONDS.toMillis(
+            Integer.getInteger(OctopusMetadataCache.class.getName() + ".missRefreshSeconds", 60));
+    private static final long RECENT_USE_MILLIS = TimeUnit.MINUTES.toMillis(
+            Integer.getInteger(OctopusMetadataCache.class.getName() + ".recentUseMinutes", 60));
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "OctopusMetadataRefresh"));
+    private static final long PACKAGE_VERSIONS_TTL_NANOS = TimeUnit.SECONDS.toNanos(
+            Integer.getInteger(OctopusMetadataCache.class.getName() + ".packageVersionsTtlSeconds", 60));
+    private static final long PROMPTED_VARIABLES_TTL_NANOS = TimeUnit.MINUTES.toNanos(
+            Integer.getInteger(OctopusMetadataCache.class.getName() + ".promptedVariablesTtlMinutes", 10));
+    private static final int MAX_PROMPTED_VARIABLES = 256;
+
+    private static final ConcurrentMap<String, OctopusMetadataCache> caches = new ConcurrentHashMap<String, OctopusMetadataCache>();
+
+    private final String key;
+    private volatile OctopusDeployServer server;
+    private volatile OctopusMetadataIndex index;
+    private final ConcurrentMap<String, Long> projectsUsedAt = new ConcurrentHashMap<String, Long>();
+    private final ConcurrentMap<String, DeploymentProcessTemplate> templatesByProjectId = new ConcurrentHashMap<String, DeploymentProcessTemplate>();
+    private final ConcurrentMap<String, FeedVersions> versionsByFeedId = new ConcurrentHashMap<String, FeedVersions>();
+    private final ConcurrentMap<String, PromptedVariables> promptedVariablesByDeployment = new ConcurrentHashMap<String, PromptedVariables>();
+    private final Object loadLock = new Object();
+    private final Object missLock = new Object();
+    private long lastMissRefresh;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private OctopusMetadataCache(String key, OctopusDeployServer server) {
+        this.key = key;
+        this.server = server;
+    }
+
+    /**
+     * Get the metadata cache for a server.
+     * Servers with the same id and url share a cache, even across configuration reloads.
+     * @param server the configured server
+     * @return the cache for that server
+     */
+    public static OctopusMetadataCache forServer(OctopusDeployServer server) {
+        String key = Util.getDigestOf(server.getId() + "\n" + server.getUrl());
+        OctopusMetadataCache cache = caches.get(key);
+        if (cache == null) {
+            OctopusMetadataCache created = new OctopusMetadataCache(key, server);
+            cache = caches.putIfAbsent(key, created);
+            if (cache == null) {
+                cache = created;
+            }
+        }
+        cache.server = server; // pick up a changed API key
+        return cache;
+    }
+
+    private OctopusApi getApi() {
+        return server.getApi();
+    }
+
+    /**
+     * Get the current index, loading the on-disk snapshot (or fetching from Octopus when there is none)
+     * the first time it is needed. An index older than the max age is returned as is and revalidated
+     * in the background.
+     * @return the current index
+     */
+    public OctopusMetadataIndex getIndex() {
+        OctopusMetadataIndex current = index;
+        if (current == null) {
+            synchronized (loadLock) {
+                current = index;
+                if (current == null) {
+                    current = loadSnapshot();
+                    if (current != null) {
+                        for (String projectId : current.getChannelProjectIds()) {
+                            markUsed(projectId);
+                        }
+                        index = current;
+                    } else {
+                        try {
+                            return refresh();
+                        } catch (IOException ex) {
+                            LOGGER.log(Level.WARNING, "Unable to fetch Octopus metadata for server " + server.getId(), ex);
+                            current = OctopusMetadataIndex.empty();
+                            index = current;
+                        }
+                    }
+                }
+            }
+        }
+        if (isStale(current)) {
+            refreshInBackground();
+        }
+        return current;
+    }
+
+    private void markUsed(String projectId) {
+        projectsUsedAt.put(projectId, System.currentTimeMillis());
+    }
+
+    private boolean isRecentlyUsed(String projectId, long now) {
+        Long usedAt = projectsUsedAt.get(projectId);
+        return usedAt != null && now - usedAt <= RECENT_USE_MILLIS;
+    }
+
+    private static boolean isStale(OctopusMetadataIndex index) {
+        return System.currentTimeMillis() - index.getCreatedAt() > MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Find a project by name, fetching from Octopus if it is not in the index (see {@link #refreshForMiss}).
+     * @param name the project name
+     * @return the project, or null if it does not exist
+     * @throws IOException if it had to be fetched and the fetch failed
+     */
+    public Project getProjectByName(String name) throws IOException {
+        Project project = getIndex().getProjectByName(name, false);
+        if (project == null) {
+            project = refreshForMiss().getProjectByName(name, false);
+        }
+        return project;
+    }
+
+    /**
+     * Find an environment by name, fetching from Octopus if it is not in the index (see {@link #refreshForMiss}).
+     * @param name the environment name
+     * @return the environment, or null if it does not exist
+     * @throws IOException if it had to be fetched and the fetch failed
+     */
+    public Environment getEnvironmentByName(String name) throws IOException {
+        Environment environment = getIndex().getEnvironmentByName(name, false);
+        if (environment == null) {
+            environment = refreshForMiss().getEnvironmentByName(name, false);
+        }
+        return environment;
+    }
+
+    /**
+     * Find a tenant by name, fetching from Octopus if it is not in the index (see {@link #refreshForMiss}).
+     * @param name the tenant name
+     * @return the tenant, or null if it does not exist
+     * @throws IOException if it had to be fetched and the fetch failed
+     */
+    public Tenant getTenantByName(String name) throws IOException {
+        Tenant tenant = getIndex().getTenantByName(name, false);
+        if (tenant == null) {
+            tenant = refreshForMiss().getTenantByName(name, false);
+        }
+        return tenant;
+    }
+
+    /**
+     * Find the tenants that carry a set of tags, see {@link OctopusTenantIndex#getTenantsWithTags}.
+     * The set of tenants decides where a release is deployed, so an index older than maxAgeMinutes is refreshed
+     * before it is used rather than in the background. When no tenant matches, the index is refreshed once in case
+     * the tags are new.
+     * @param tags canonical tag names, ex. Region/East
+     * @return the matching tenants, sorted by name
+     * @throws IOException if it had to be fetched and the fetch failed
+     */
+    public List<Tenant> getTenantsWithTags(Collection<String> tags) throws IOException {
+        List<Tenant> tenants = getFreshIndex().getTenantIndex().getTenantsWithTags(tags);
+        if (tenants.isEmpty()) {
+            tenants = refreshForMiss().getTenantIndex().getTenantsWithTags(tags);
+        }
+        return tenants;
+    }
+
+    /**
+     * Get the index, refreshing it first if it is older than maxAgeMinutes. Concurrent callers share one refresh.
+     */
+    private OctopusMetadataIndex getFreshIndex() throws IOException {
+        OctopusMetadataIndex current = index;
+        if (current == null) {
+            current = getIndex(); // first use, loads the snapshot or fetches
+        }
+        if (!isStale(current)) {
+            return current;
+        }
+        synchronized (missLock) {
+            current = index;
+            if (!isStale(current)) {
+                return current;
+            }
+            lastMissRefresh = System.currentTimeMillis();
+            return refresh(false);
+        }
+    }
+
+    /**
+     * Refresh projects, environments and tenants because a name was not found in the index.
+     * Known channels are kept rather than refetched. Refreshes for misses happen at most once per missRefreshSeconds:
+     * concurrent misses share one refresh, and later misses inside the interval are answered from the index.
+     * @return the refreshed index, or the current one if it was refreshed recently
+     * @throws IOException if projects or environments could not be fetched
+     */
+    public OctopusMetadataIndex refreshForMiss() throws IOException {
+        synchronized (missLock) {
+            OctopusMetadataIndex current = getIndex();
+            long now = System.currentTimeMillis();
+            if (now - Math.max(lastMissRefresh, current.getCreatedAt()) < MISS_REFRESH_MILLIS) {
+                return current;
+            }
+            lastMissRefresh = now;
+            return refresh(false);
+        }
+    }
+
+    /**
+     * Find a channel of a project by name, fetching the project's channels if they are not in the index.
+     * @param projectId the project id
+     * @param name the channel name
+     * @return the channel, or null if it does not exist
+     * @throws IOException if it had to be fetched and the fetch failed
+     */
+    public Channel getChannelByName(String projectId, String name) throws IOException {
+        markUsed(projectId);
+        Channel channel = getIndex().getChannelByName(projectId, name);
+        if (channel == null) {
+            channel = refreshChannels(projectId).getChannelByName(projectId, name);
+        }
+        return channel;
+    }
+
+    /**
+     * Get all channels of a project, fetching them if they are not in the index.
+     * @param projectId the project id
+     * @return the project's channels
+     * @throws IOException if they had to be fetched and the fetch failed
+     */
+    public Collection<Channel> getChannels(String projectId) throws IOException {
+        markUsed(projectId);
+        Collection<Channel> channels = getIndex().getChannels(projectId);
+        if (channels == null) {
+            channels = refreshChannels(projectId).getChannels(projectId);
+        }
+        return channels;
+    }
+
+    /**
+     * Get the channel names of a project, fetching the project's channels if they are not in the index.
+     * @param projectId the project id
+     * @return the project's channel names
+     * @throws IOException if they had to be fetched and the fetch failed
+     */
+    public OctopusNameIndex getChannelNames(String projectId) throws IOException {
+        markUsed(projectId);
+        OctopusNameIndex names = getIndex().getChannelNames(projectId);
+        if (names == null) {
+            names = refreshChannels(projectId).getChannelNames(projectId);
+        }
+        return names;
+    }
+
+    /**
+     * Get the deployment process template of a project.
+     * The template is revalidated on every call, since a release must use the current deployment process.
+     * A cached template that came with an ETag is revalidated with a conditional request, which costs
+     * no content when the deployment process has not been edited; without an ETag the template is fetched again.
+     * @param projectId the project id
+     * @return the template
+     * @throws IOException if the template could not be fetched or revalidated
+     */
+    public DeploymentProcessTemplate getDeploymentProcessTemplate(String projectId) throws IOException {
+        markUsed(projectId);
+        DeploymentProcessTemplate cached = templatesByProjectId.get(projectId);
+        DeploymentProcessTemplate template = getApi().getDeploymentsApi().getDeploymentProcessTemplateForProject(projectId, cached);
+        if (template != cached) {
+            templatesByProjectId.put(projectId, template);
+        }
+        return template;
+    }
+
+    /**
+     * Get the latest versions of packages in a feed.
+     * Versions are remembered per feed for a minute by default (packageVersionsTtlSeconds), so several releases
+     * created close together share one lookup; only packages not already known are asked for.
+     * Package ids are matched ignoring case.
+     * @param feedId the feed id
+     * @param packageIds the package ids to resolve
+     * @return the latest version of each package that was found, by package id
+     * @throws IOException if the feed could not be queried
+     */
+    public Map<String, String> getLatestPackageVersions(String feedId, Collection<String> packageIds) throws IOException {
+        long now = System.nanoTime();
+        FeedVersions feed = versionsByFeedId.get(feedId);
+        if (feed == null || feed.isExpired(now)) {
+            feed = new FeedVersions(now + PACKAGE_VERSIONS_TTL_NANOS);
+            versionsByFeedId.put(feedId, feed);
+        }
+        Map<String, String> versions = new HashMap<String, String>();
+        Set<String> missing = new HashSet<String>();
+        for (String packageId : packageIds) {
+            String version = feed.versions.get(packageId.toLowerCase(Locale.ROOT));
+            if (version != null) {
+                versions.put(packageId, version);
+            } else {
+                missing.add(packageId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, String> fetched = getApi().getFeedsApi().getLatestVersions(feedId, missing);
+            for (Map.Entry<String, String> entry : fetched.entrySet()) {
+                feed.versions.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+            }
+            versions.putAll(fetched);
+        }
+        return versions;
+    }
+
+    /**
+     * Get the prompted variables of a release in an environment, by name.
+     * They are remembered per release and environment for ten minutes by default (promptedVariablesTtlMinutes),
+     * so repeated deployments of a release do not fetch the deployment preview each time.
+     * @param releaseId the release id
+     * @param environmentId the environment id
+     * @return the prompted variables, without values
+     * @throws IOException if the deployment preview could not be fetched
+     */
+    public Map<String, Variable> getPromptedVariables(String releaseId, String environmentId) throws IOException {
+        String deploymentKey = releaseId + "/" + environmentId;
+        long now = System.nanoTime();
+        PromptedVariables cached = promptedVariablesByDeployment.get(deploymentKey);
+        if (cached != null && !cached.isExpired(now)) {
+            return cached.variables;
+        }
+        Map<String, Variable> variables = Collections.unmodifiableMap(
+                getApi().getVariablesApi().getPromptedVariables(releaseId, environmentId));
+        if (promptedVariablesByDeployment.size() >= MAX_PROMPTED_VARIABLES) {
+            for (Map.Entry<String, PromptedVariables> entry : promptedVariablesByDeployment.entrySet()) {
+                if (entry.getValue().isExpired(now)) {
+                    promptedVariablesByDeployment.remove(entry.getKey(), entry.getValue());
+                }
+            }
+            if (promptedVariablesByDeployment.size() >= MAX_PROMPTED_VARIABLES) {
+                promptedVariablesByDeployment.clear();
+            }
+        }
+        promptedVariablesByDeployment.put(deploymentKey, new PromptedVariables(variables, now + PROMPTED_VARIABLES_TTL_NANOS));
+        return variables;
+    }
+
+    /**
+     * Fetch projects, environments and tenants from Octopus, replacing the index and the on-disk snapshot.
+     * Channels and templates are refetched for the projects that used them recently, and dropped for the others.
+     * A project whose channels cannot be fetched keeps the channels already known.
+     * The fetch does not hold any lock, so readers keep using the previous index until it completes.
+     * If tenants cannot be fetched, the tenants already known are kept; with none known, the index is not saved.
+     * @return the new index
+     * @throws IOException if projects or environments could not be fetched
+     */
+    public OctopusMetadataIndex refresh() throws IOException {
+        return refresh(true);
+    }
+
+    private OctopusMetadataIndex refresh(boolean refetchChannels) throws IOException {
+        OctopusApi api = getApi();
+        OctopusMetadataIndex previous = index;
+        Set<Project> projects = api.getProjectsApi().getAllProjects();
+        Set<Environment> environments = api.getEnvironmentsApi().getAllEnvironments();
+        Collection<Tenant> tenants;
+        boolean persist = true;
+        try {
+            tenants = api.getTenantsApi().getAllTenants();
+        } catch (IOException ex) {
+            // Servers without multi-tenancy do not serve tenants; a failed fetch keeps the tenants already known
+            LOGGER.log(Level.FINE, "Unable to fetch tenants for server " + server.getId(), ex);
+            if (previous != null && previous.getCreatedAt() > 0) {
+                tenants = previous.getTenants();
+            } else {
+                tenants = Collections.emptySet();
+                persist = false;
+            }
+        }
+        Map<String, Collection<Channel>> channels = new HashMap<String, Collection<Channel>>();
+        Set<String> projectIds = new HashSet<String>();
+        long now = System.currentTimeMillis();
+        for (Project project : projects) {
+            String projectId = project.getId();
+            projectIds.add(projectId);
+            Collection<Channel> known = previous == null ? null : previous.getChannels(projectId);
+            if (!refetchChannels) {
+                if (known != null) {
+                    channels.put(projectId, known);
+                }
+                continue;
+            }
+            if (!isRecentlyUsed(projectId, now)) {
+                templatesByProjectId.remove(projectId);
+                continue;
+            }
+            if (known != null) {
+                try {
+                    channels.put(projectId, api.getChannelsApi().getChannelsByProjectId(projectId));
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to refresh channels of " + projectId + ", keeping the known ones", ex);
+                    channels.put(projectId, known);
+                }
+            }
+            if (templatesByProjectId.containsKey(projectId)) {
+                refreshTemplate(api, projectId);
+            }
+        }
+        projectsUsedAt.keySet().retainAll(projectIds);
+        templatesByProjectId.keySet().retainAll(projectIds);
+        OctopusMetadataIndex fresh = OctopusMetadataIndex.create(System.currentTimeMillis(), projects, environments, tenants, channels);
+        synchronized (this) {
+            OctopusMetadataIndex current = index;
+            if (current != null && current.getCreatedAt() > fresh.getCreatedAt()) {
+                return current; // a later refresh finished first
+            }
+            index = fresh;
+            if (persist) {
+                saveSnapshot(fresh);
+            }
+        }
+        return fresh;
+    }
+
+    private void refreshTemplate(OctopusApi api, String projectId) {
+        try {
+            DeploymentProcessTemplate cached = templatesByProjectId.get(projectId);
+            templatesByProjectId.put(projectId, api.getDeploymentsApi().getDeploymentProcessTemplateForProject(projectId, cached));
+        } catch (IOException ex) {
+            // Projects without a deployment process have no template
+            LOGGER.log(Level.FINE, "Unable to fetch deployment process template for " + projectId, ex);
+            templatesByProjectId.remove(projectId);
+        }
+    }
+
+    /**
+     * Make sure the channels of several projects are in the index, fetching the ones not known yet.
+     * The fetched channels are added in one update with one snapshot save, so a batch of projects does not
+     * rewrite the snapshot once per project.
+     * @param projectIds the project ids
+     * @return the index, with the channels of every project
+     * @throws IOException if channels had to be fetched and a fetch failed
+     */
+    public OctopusMetadataIndex loadChannels(Collection<String> projectIds) throws IOException {
+        OctopusMetadataIndex base = getIndex();
+        Map<String, Collection<Channel>> fetched = new HashMap<String, Collection<Channel>>();
+        for (String projectId : projectIds) {
+            markUsed(projectId);
+            if (base.getChannels(projectId) == null) {
+                fetched.put(projectId, getApi().getChannelsApi().getChannelsByProjectId(projectId));
+            }
+        }
+        if (fetched.isEmpty()) {
+            return base;
+        }
+        synchronized (this) {
+            OctopusMetadataIndex current = index;
+            OctopusMetadataIndex updated = (current == null ? base : current).withChannels(fetched);
+            index = updated;
+            saveSnapshot(updated);
+            return updated;
+        }
+    }
+
+    private OctopusMetadataIndex refreshChannels(String projectId) throws IOException {
+        Set<Channel> channels = getApi().getChannelsApi().getChannelsByProjectId(projectId);
+        OctopusMetadataIndex base = getIndex();
+        synchronized (this) {
+            OctopusMetadataIndex current = index;
+            OctopusMetadataIndex updated = (current == null ? base : current).withChannels(projectId, channels);
+            index = updated;
+            saveSnapshot(updated);
+            return updated;
+        }
+    }
+
+    /**
+     * Refresh the index on the background refresh thread, unless a background refresh is already pending or running.
+     */
+    public void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        REFRESH_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to revalidate Octopus metadata for server " + server.getId(), ex);
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to revalidate Octopus metadata for server " + server.getId(), ex);
+                } finally {
+                    refreshing.set(false);
+                }
+            }
+        });
+    }
+
+    private File getSnapshotFile() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return null;
+        }
+        return new File(new File(jenkins.getRootDir(), SNAPSHOT_DIRECTORY), key + ".bin");
+    }
+
+    private OctopusMetadataIndex loadSnapshot() {
+        File file = getSnapshotFile();
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                return OctopusMetadataIndex.read(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable Octopus metadata snapshot " + file, ex);
+            return null;
+        }
+    }
+
+    private void saveSnapshot(OctopusMetadataIndex snapshot) {
+        File file = getSnapshotFile();
+        if (file == null) {
+            return;
+        }
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.log(Level.WARNING, "Unable to create Octopus metadata snapshot directory {0}", directory);
+            return;
+        }
+        try {
+            File temp = File.createTempFile(key, ".tmp", directory);
+            try {
+                OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+                try {
+                    snapshot.write(out);
+                } finally {
+                    out.close();
+                }
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                if (temp.exists() && !temp.delete()) {
+                    LOGGER.log(Level.FINE, "Unable to delete {0}", temp);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to save Octopus metadata snapshot " + file, ex);
+        }
+    }
+
+    /**
+     * Latest package versions of one feed, valid until a deadline.
+     */
+    private static final class FeedVersions {
+        private final ConcurrentMap<String, String> versions = new ConcurrentHashMap<String, String>();
+        private final long expiresAt;
+
+        FeedVersions(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+
+    private static final class PromptedVariables {
+        private final Map<String, Variable> variables;
+        private final long expiresAt;
+
+        PromptedVariables(Map<String, Variable> variables, long expiresAt) {
+            this.variables = variables;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Channel;
+import com.octopusdeploy.api.data.Environment;
+import com.octopusdeploy.api.data.Project;
+import com.octopusdeploy.api.data.Tenant;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An immutable name/id index of the projects, environments, tenants and channels on one Octopus server.
+ * Each kind of resource is kept in an array-backed table sorted by name.
+ * Indexes are replaced as a whole when metadata is refreshed, so readers never see a partial update.
+ * An index can be written to and read from a compact gzipped binary snapshot.
+ */
+public final class OctopusMetadataIndex {
+    private static final int MAGIC = 0x4F435053; // "OCPS"
+    private static final int FORMAT_VERSION = 2;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /** The longest string a snapshot may hold; longer lengths mean the file is corrupt. */
+    private static final int MAX_STRING_BYTES = 1 << 20;
+    /** The most entries of one list a snapshot may hold; larger counts mean the file is corrupt. */
+    private static final int MAX_COUNT = 1 << 22;
+
+    private final long createdAt;
+    /**
+     * When the metadata in this index was fetched from Octopus.
+     * @return milliseconds since the epoch
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    private final OctopusEntityTable<Project> projects;
+    private final OctopusEntityTable<Environment> environments;
+    private final OctopusTenantIndex tenants;
+    private final Map<String, OctopusEntityTable<Channel>> channelsByProjectId;
+
+    private OctopusMetadataIndex(long createdAt, OctopusEntityTable<Project> projects, OctopusEntityTable<Environment> environments,
+            OctopusTenantIndex tenants, Map<String, OctopusEntityTable<Channel>> channelsByProjectId) {
+        this.createdAt = createdAt;
+        this.projects = projects;
+        this.environments = environments;
+        this.tenants = tenants;
+        this.channelsByProjectId = channelsByProjectId;
+    }
+
+    /**
+     * Build an index from freshly fetched metadata.
+     * @param createdAt when the metadata was fetched
+     * @param projects all projects
+     * @param environments all environments
+     * @param tenants all tenants
+     * @param channelsByProjectId channels for the projects whose channels are known
+     * @return the new index
+     */
+    public static OctopusMetadataIndex create(long createdAt, Collection<Project> projects, Collection<Environment> environments,
+            Collection<Tenant> tenants, Map<String, ? extends Collection<Channel>> channelsByProjectId) {
+        Map<String, OctopusEntityTable<Channel>> channelMap = new HashMap<String, OctopusEntityTable<Channel>>();
+        for (Map.Entry<String, ? extends Collection<Channel>> entry : channelsByProjectId.entrySet()) {
+            channelMap.put(entry.getKey(), OctopusEntityTable.of(entry.getValue()));
+        }
+        return new OctopusMetadataIndex(createdAt, OctopusEntityTable.of(projects), OctopusEntityTable.of(environments),
+                OctopusTenantIndex.of(tenants), channelMap);
+    }
+
+    /**
+     * An index with nothing in it, used until metadata has been fetched.
+     * @return an empty index created at time 0
+     */
+    public static OctopusMetadataIndex empty() {
+        return new OctopusMetadataIndex(0,
+                OctopusEntityTable.of(Collections.<Project>emptyList()),
+                OctopusEntityTable.of(Collections.<Environment>emptyList()),
+                OctopusTenantIndex.of(Collections.<Tenant>emptyList()),
+                Collections.<String, OctopusEntityTable<Channel>>emptyMap());
+    }
+
+    /**
+     * Copy this index, replacing the known channels for one project.
+     * @param projectId the project the channels belong to
+     * @param channels all channels of the project
+     * @return the new index
+     */
+    public OctopusMetadataIndex withChannels(String projectId, Collection<Channel> channels) {
+        return withChannels(Collections.singletonMap(projectId, channels));
+    }
+
+    /**
+     * Copy this index, replacing the known channels for several projects.
+     * @param channels all channels of each project, by project id
+     * @return the new index
+     */
+    public OctopusMetadataIndex withChannels(Map<String, ? extends Collection<Channel>> channels) {
+        Map<String, OctopusEntityTable<Channel>> channelMap = new HashMap<String, OctopusEntityTable<Channel>>(channelsByProjectId);
+        for (Map.Entry<String, ? extends Collection<Channel>> entry : channels.entrySet()) {
+            channelMap.put(entry.getKey(), OctopusEntityTable.of(entry.getValue()));
+        }
+        return new OctopusMetadataIndex(createdAt, projects, environments, tenants, channelMap);
+    }
+
+    public Collection<Project> getProjects() {
+        return projects;
+    }
+
+    public Collection<Environment> getEnvironments() {
+        return environments;
+    }
+
+    public Collection<Tenant> getTenants() {
+        return tenants.getTenants();
+    }
+
+    /**
+     * The tenants with their id and tag lookups.
+     * @return the tenant index
+     */
+    public OctopusTenantIndex getTenantIndex() {
+        return tenants;
+    }
+
+    /**
+     * The ids of projects whose channels are in this index.
+     * @return project ids
+     */
+    public Collection<String> getChannelProjectIds() {
+        return Collections.unmodifiableCollection(channelsByProjectId.keySet());
+    }
+
+    /**
+     * Channels of a project.
+     * @param projectId the project id
+     * @return the channels, or null if the project's channels are not in this index
+     */
+    public Collection<Channel> getChannels(String projectId) {
+        return channelsByProjectId.get(projectId);
+    }
+
+    public OctopusNameIndex getProjectNames() {
+        return projects.getNames();
+    }
+
+    public OctopusNameIndex getEnvironmentNames() {
+        return environments.getNames();
+    }
+
+    public OctopusNameIndex getTenantNames() {
+        return tenants.getNames();
+    }
+
+    /**
+     * Channel names of a project.
+     * @param projectId the project id
+     * @return the names, or null if the project's channels are not in this index
+     */
+    public OctopusNameIndex getChannelNames(String projectId) {
+        OctopusEntityTable<Channel> channels = channelsByProjectId.get(projectId);
+        return channels == null ? null : channels.getNames();
+    }
+
+    public Project getProjectByName(String name, boolean ignoreCase) {
+        return projects.getByName(name, ignoreCase);
+    }
+
+    public Environment getEnvironmentByName(String name, boolean ignoreCase) {
+        return environments.getByName(name, ignoreCase);
+    }
+
+    public Tenant getTenantByName(String name, boolean ignoreCase) {
+        return tenants.getByName(name, ignoreCase);
+    }
+
+    /**
+     * Look up a channel of a project.
+     * @param projectId the project id
+     * @param name the channel name (exact match)
+     * @return the channel, or null if it is not in this index
+     */
+    public Channel getChannelByName(String projectId, String name) {
+        OctopusEntityTable<Channel> channels = channelsByProjectId.get(projectId);
+        return channels == null ? null : channels.getByName(name, false);
+    }
+
+    /**
+     * Write this index as a gzipped binary snapshot.
+     * @param out the stream to write to; it is finished but not closed
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(gzip);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeLong(createdAt);
+        data.writeInt(projects.size());
+        for (Project project : projects) {
+            writeString(data, project.getId());
+            writeString(data, project.getName());
+        }
+        data.writeInt(environments.size());
+        for (Environment environment : environments) {
+            writeString(data, environment.getId());
+            writeString(data, environment.getName());
+            writeString(data, environment.getDescription());
+        }
+        data.writeInt(tenants.size());
+        for (Tenant tenant : tenants.getTenants()) {
+            writeString(data, tenant.getId());
+            writeString(data, tenant.getName());
+            data.writeInt(tenant.getTags().size());
+            for (String tag : tenant.getTags()) {
+                writeString(data, tag);
+            }
+        }
+        data.writeInt(channelsByProjectId.size());
+        for (Map.Entry<String, OctopusEntityTable<Channel>> entry : channelsByProjectId.entrySet()) {
+            writeString(data, entry.getKey());
+            data.writeInt(entry.getValue().size());
+            for (Channel channel : entry.getValue()) {
+                writeString(data, channel.getId());
+                writeString(data, channel.getName());
+                writeString(data, channel.getDescription());
+                data.writeBoolean(channel.getIsDefault());
+            }
+        }
+        data.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Read an index from a snapshot written by write.
+     * @param in the stream to read from
+     * @return the index
+     * @throws IOException if the snapshot is unreadable, corrupt or was written in another format version
+     */
+    public static OctopusMetadataIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new GZIPInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an Octopus metadata snapshot");
+        }
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported Octopus metadata snapshot version %d", version));
+        }
+        long createdAt = data.readLong();
+        int count = readCount(data);
+        List<Project> projects = new ArrayList<Project>(count);
+        for (int i = 0; i < count; i++) {
+            projects.add(new Project(readString(data), readString(data)));
+        }
+        count = readCount(data);
+        List<Environment> environments = new ArrayList<Environment>(count);
+        for (int i = 0; i < count; i++) {
+            environments.add(new Environment(readString(data), readString(data), readString(data)));
+        }
+        count = readCount(data);
+        List<Tenant> tenants = new ArrayList<Tenant>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(data);
+            String name = readString(data);
+            int tagCount = readCount(data);
+            List<String> tags = new ArrayList<String>(tagCount);
+            for (int j = 0; j < tagCount; j++) {
+                tags.add(readString(data));
+            }
+            tenants.add(new Tenant(id, name, tags));
+        }
+        count = readCount(data);
+        Map<String, List<Channel>> channels = new HashMap<String, List<Channel>>();
+        for (int i = 0; i < count; i++) {
+            String projectId = readString(data);
+            int channelCount = readCount(data);
+            List<Channel> projectChannels = new ArrayList<Channel>(channelCount);
+            for (int j = 0; j < channelCount; j++) {
+                String id = readString(data);
+                String name = readString(data);
+                String description = readString(data);
+                boolean isDefault = data.readBoolean();
+                projectChannels.add(new Channel(id, name, description, projectId, isDefault));
+            }
+            channels.put(projectId, projectChannels);
+        }
+        return create(createdAt, projects, environments, tenants, channels);
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static int readCount(DataInputStream data) throws IOException {
+        int count = data.readInt();
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IOException(String.format("Corrupt Octopus metadata snapshot: count %d", count));
+        }
+        return count;
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException(String.format("Corrupt Octopus metadata snapshot: string length %d", length));
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+}
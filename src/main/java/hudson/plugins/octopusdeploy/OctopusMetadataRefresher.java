@@ -0,0 +1,58 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.Extension;
+import hudson.model.PeriodicWork;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import jenkins.util.Timer;
+
+/**
+ * Keeps the metadata cache of every configured Octopus server warm, so that builds and config pages
+ * read from memory instead of waiting on Octopus. Only the channels and templates of recently used projects are
+ * refetched, and the refreshes themselves run on the metadata cache's own thread rather than on the shared timer.
+ * Servers are refreshed one after another, spread over the first half of the refresh period with some
+ * random jitter, so that several Jenkins controllers (or several servers) do not hit Octopus at the same moment.
+ * The period defaults to 5 minutes and can be set with the
+ * hudson.plugins.octopusdeploy.OctopusMetadataRefresher.refreshMinutes system property; 0 disables it.
+ */
+@Extension
+public class OctopusMetadataRefresher extends PeriodicWork {
+    private static final long REFRESH_PERIOD = TimeUnit.MINUTES.toMillis(
+            Integer.getInteger(OctopusMetadataRefresher.class.getName() + ".refreshMinutes", 5));
+
+    private final Random random = new Random();
+
+    @Override
+    public long getRecurrencePeriod() {
+        // PeriodicWork needs a positive period; when disabled doRun does nothing
+        return REFRESH_PERIOD > 0 ? REFRESH_PERIOD : HOUR;
+    }
+
+    @Override
+    public long getInitialDelay() {
+        return (long) (random.nextDouble() * getRecurrencePeriod());
+    }
+
+    @Override
+    protected void doRun() {
+        if (REFRESH_PERIOD <= 0) {
+            return;
+        }
+        List<OctopusDeployServer> servers = AbstractOctopusDeployRecorder.getOctopusDeployServers();
+        if (servers == null || servers.isEmpty()) {
+            return;
+        }
+        long slot = REFRESH_PERIOD / 2 / servers.size();
+        for (int i = 0; i < servers.size(); i++) {
+            final OctopusDeployServer server = servers.get(i);
+            long delay = i * slot + (long) (random.nextDouble() * slot);
+            Timer.get().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    OctopusMetadataCache.forServer(server).refreshInBackground();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+}
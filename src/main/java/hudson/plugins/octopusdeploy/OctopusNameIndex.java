@@ -0,0 +1,110 @@
+package hudson.plugins.octopusdeploy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable, case-insensitively sorted list of names that answers prefix queries with a binary search.
+ * Used to fill the autocomplete lists on the job configuration page without walking every name.
+ */
+public final class OctopusNameIndex {
+    /**
+     * The most names returned for a single autocomplete list, 1000 by default.
+     * Set with the hudson.plugins.octopusdeploy.OctopusNameIndex.maxCandidates system property.
+     */
+    public static final int MAX_CANDIDATES = Integer.getInteger(OctopusNameIndex.class.getName() + ".maxCandidates", 1000);
+
+    private static final OctopusNameIndex EMPTY = new OctopusNameIndex(new String[0]);
+
+    private final String[] names;
+
+    private OctopusNameIndex(String[] names) {
+        this.names = names;
+    }
+
+    /**
+     * Build an index of names; nulls are skipped.
+     * @param names the names to index
+     * @return the index
+     */
+    public static OctopusNameIndex of(Collection<String> names) {
+        List<String> sorted = new ArrayList<String>(names.size());
+        for (String name : names) {
+            if (name != null) {
+                sorted.add(name);
+            }
+        }
+        if (sorted.isEmpty()) {
+            return EMPTY;
+        }
+        String[] array = sorted.toArray(new String[sorted.size()]);
+        Arrays.sort(array, String.CASE_INSENSITIVE_ORDER);
+        return new OctopusNameIndex(array);
+    }
+
+    /**
+     * Wrap names that are already sorted ignoring case; the array is not copied and must not be changed.
+     * @param sortedNames the names, sorted with String.CASE_INSENSITIVE_ORDER
+     * @return the index
+     */
+    static OctopusNameIndex wrap(String[] sortedNames) {
+        return sortedNames.length == 0 ? EMPTY : new OctopusNameIndex(sortedNames);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Names starting with a prefix, ignoring case, in sorted order.
+     * @param prefix the prefix to match; null or empty matches every name
+     * @param limit the most names to return
+     * @return up to limit matching names
+     */
+    public List<String> startingWith(String prefix, int limit) {
+        if (prefix == null) {
+            prefix = "";
+        }
+        List<String> matches = new ArrayList<String>(Math.min(limit, names.length));
+        for (int i = lowerBound(prefix); i < names.length && matches.size() < limit; i++) {
+            if (!names[i].regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            matches.add(names[i]);
+        }
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * Find a name ignoring case.
+     * @param name the name to look for
+     * @return the name as it is stored, or null if it is not in the index
+     */
+    public String findIgnoreCase(String name) {
+        if (name == null) {
+            return null;
+        }
+        int i = lowerBound(name);
+        return i < names.length && names[i].equalsIgnoreCase(name) ? names[i] : null;
+    }
+
+    /**
+     * The first position whose name is not before the key, ignoring case.
+     */
+    int lowerBound(String key) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(names[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
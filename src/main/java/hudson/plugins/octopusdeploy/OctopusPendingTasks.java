@@ -0,0 +1,204 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Task;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Run;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+
+/**
+ * Keeps track of the deployment tasks that builds are waiting on, in JENKINS_HOME, so that a controller restart
+ * does not lose them. A build that is cut off by a restart is aborted by Jenkins, but its task is still running in Octopus:
+ * after the restart the task is watched in the background and, once it completes, its final state is attached to the
+ * build as an {@link OctopusResumedTaskSummary}. Nothing is deployed again.
+ */
+public final class OctopusPendingTasks {
+    private static final Logger LOGGER = Logger.getLogger(OctopusPendingTasks.class.getName());
+    /**
+     * Seconds between checks of a resumed task, 30 unless set with the
+     * hudson.plugins.octopusdeploy.OctopusPendingTasks.resumePollSeconds system property.
+     */
+    static final int RESUME_POLL_SECONDS = Integer.getInteger(OctopusPendingTasks.class.getName() + ".resumePollSeconds", 30);
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final Object lock = new Object();
+
+    private OctopusPendingTasks() {
+    }
+
+    /**
+     * Remember that a build is waiting on a task.
+     * @param serverId the Octopus server id
+     * @param taskId the task id
+     * @param build the waiting build
+     * @param project the Octopus project name
+     */
+    public static void add(String serverId, String taskId, Run<?, ?> build, String project) {
+        synchronized (lock) {
+            List<PendingTask> tasks = load();
+            tasks.add(new PendingTask(serverId, taskId, build.getExternalizableId(), project, System.currentTimeMillis()));
+            save(tasks);
+        }
+    }
+
+    /**
+     * Forget a task, once the build waiting on it has seen it complete.
+     * @param taskId the task id
+     */
+    public static void remove(String taskId) {
+        synchronized (lock) {
+            List<PendingTask> tasks = load();
+            List<PendingTask> remaining = new ArrayList<PendingTask>();
+            for (PendingTask task : tasks) {
+                if (!task.taskId.equals(taskId)) {
+                    remaining.add(task);
+                }
+            }
+            if (remaining.size() != tasks.size()) {
+                save(remaining);
+            }
+        }
+    }
+
+    /**
+     * Whether the controller is shutting down or preparing to, in which case an interrupted wait should keep its task
+     * to be resumed after the restart. Any other interruption, like a build abort, should forget it.
+     * @return true if Jenkins is terminating, quieting down or already gone
+     */
+    public static boolean isShuttingDown() {
+        Jenkins jenkins = Jenkins.getInstance();
+        return jenkins == null || jenkins.isTerminating() || jenkins.isQuietingDown();
+    }
+
+    /**
+     * Resume watching the tasks that builds were waiting on when the controller stopped.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void resumeAll() {
+        List<PendingTask> tasks;
+        synchronized (lock) {
+            tasks = load();
+        }
+        for (PendingTask task : tasks) {
+            LOGGER.log(Level.INFO, "Resuming wait for Octopus task {0} of {1}", new Object[] {task.taskId, task.buildId});
+            Timer.get().submit(new ResumedWait(task));
+        }
+    }
+
+    private static XmlFile getFile() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null) {
+            return null;
+        }
+        return new XmlFile(new File(jenkins.getRootDir(), OctopusPendingTasks.class.getName() + ".xml"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<PendingTask> load() {
+        XmlFile file = getFile();
+        if (file == null || !file.exists()) {
+            return new ArrayList<PendingTask>();
+        }
+        try {
+            return new ArrayList<PendingTask>((List<PendingTask>) file.read());
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to read pending Octopus tasks from " + file.getFile(), ex);
+            return new ArrayList<PendingTask>();
+        }
+    }
+
+    private static void save(List<PendingTask> tasks) {
+        XmlFile file = getFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            if (tasks.isEmpty()) {
+                file.delete();
+            } else {
+                file.write(tasks);
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to save pending Octopus tasks to " + file.getFile(), ex);
+        }
+    }
+
+    /**
+     * A task that a build is waiting on, as stored in JENKINS_HOME.
+     */
+    static final class PendingTask {
+        private final String serverId;
+        private final String taskId;
+        private final String buildId;
+        private final String project;
+        private final long startedAt;
+
+        PendingTask(String serverId, String taskId, String buildId, String project, long startedAt) {
+            this.serverId = serverId;
+            this.taskId = taskId;
+            this.buildId = buildId;
+            this.project = project;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * Checks a resumed task every {@link #RESUME_POLL_SECONDS} until it completes, or until it is a week old.
+     */
+    private static final class ResumedWait implements Runnable {
+        private final PendingTask pending;
+
+        ResumedWait(PendingTask pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void run() {
+            if (System.currentTimeMillis() - pending.startedAt > MAX_AGE_MILLIS) {
+                LOGGER.log(Level.WARNING, "Gave up waiting for Octopus task {0}", pending.taskId);
+                remove(pending.taskId);
+                return;
+            }
+            OctopusDeployServer server = AbstractOctopusDeployRecorder.getOctopusDeployServer(pending.serverId);
+            if (server == null) {
+                LOGGER.log(Level.WARNING, "Octopus server {0} of task {1} is no longer configured", new Object[] {pending.serverId, pending.taskId});
+                remove(pending.taskId);
+                return;
+            }
+            try {
+                Task task = server.getApi().getTasksApi().getTask(pending.taskId);
+                if (task.getIsCompleted()) {
+                    record(task.getState());
+                    return;
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, "Unable to check Octopus task " + pending.taskId, ex);
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.FINE, "Unable to check Octopus task " + pending.taskId, ex);
+            }
+            Timer.get().schedule(this, RESUME_POLL_SECONDS, TimeUnit.SECONDS);
+        }
+
+        private void record(String state) {
+            LOGGER.log(Level.INFO, "Octopus task {0} of {1} completed after a restart: {2}", new Object[] {pending.taskId, pending.buildId, state});
+            Run<?, ?> build = Run.fromExternalizableId(pending.buildId);
+            if (build != null) {
+                build.addAction(new OctopusResumedTaskSummary(pending.taskId, pending.project, state));
+                try {
+                    build.save();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Unable to save " + pending.buildId, ex);
+                }
+            }
+            remove(pending.taskId);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Records which packages a build pushed to Octopus and which it skipped because Octopus already had the same content.
+ * Shown on the Build Summary page and exported through the remote API.
+ */
+@ExportedBean
+public class OctopusPushSummary implements Action {
+
+    private final List<PushedPackage> packages = new ArrayList<PushedPackage>();
+
+    /**
+     * Get the push summary for a build, attaching a new one if there is none yet.
+     * @param build the build to record pushes on
+     * @return the build's push summary
+     */
+    public static OctopusPushSummary forBuild(AbstractBuild build) {
+        synchronized (build) {
+            OctopusPushSummary summary = (OctopusPushSummary) build.getAction(OctopusPushSummary.class);
+            if (summary == null) {
+                summary = new OctopusPushSummary();
+                build.addAction(summary);
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * Record the outcome of pushing one package.
+     * @param name the package file name
+     * @param bytes the package size
+     * @param skipped true if the package was not uploaded because Octopus already had it
+     */
+    public synchronized void record(String name, long bytes, boolean skipped) {
+        packages.add(new PushedPackage(name, bytes, skipped));
+    }
+
+    @Exported
+    public synchronized List<PushedPackage> getPackages() {
+        return new ArrayList<PushedPackage>(packages);
+    }
+
+    @Exported
+    public synchronized long getUploadedBytes() {
+        return sumBytes(false);
+    }
+
+    @Exported
+    public synchronized long getSkippedBytes() {
+        return sumBytes(true);
+    }
+
+    public String getUploadedSize() {
+        return OctopusDeployPushRecorder.formatBytes(getUploadedBytes());
+    }
+
+    public String getSkippedSize() {
+        return OctopusDeployPushRecorder.formatBytes(getSkippedBytes());
+    }
+
+    private long sumBytes(boolean skipped) {
+        long total = 0;
+        for (PushedPackage pushed : packages) {
+            if (pushed.isSkipped() == skipped) {
+                total += pushed.getBytes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * No sidebar entry; this action only contributes to the Build Summary page.
+     * @return null
+     */
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OctopusDeploy - Package Push";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * The outcome of pushing a single package.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class PushedPackage implements Serializable {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        private final String name;
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        private final long bytes;
+        @Exported
+        public long getBytes() {
+            return bytes;
+        }
+
+        private final boolean skipped;
+        @Exported
+        public boolean isSkipped() {
+            return skipped;
+        }
+
+        public String getSize() {
+            return OctopusDeployPushRecorder.formatBytes(bytes);
+        }
+
+        public PushedPackage(String name, long bytes, boolean skipped) {
+            this.name = name;
+            this.bytes = bytes;
+            this.skipped = skipped;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.model.Action;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The outcome of a batch release step: one entry per project, with a link to the release or the reason it failed.
+ * Shown on the Build Summary page and exported through the remote API.
+ */
+@ExportedBean
+public class OctopusReleaseBatchSummary implements Action {
+
+    private final String releaseVersion;
+    @Exported
+    public String getReleaseVersion() {
+        return releaseVersion;
+    }
+
+    private final List<ProjectRelease> releases = new ArrayList<ProjectRelease>();
+
+    public OctopusReleaseBatchSummary(String releaseVersion) {
+        this.releaseVersion = releaseVersion;
+    }
+
+    /**
+     * Record a release that was created.
+     * @param project the project name
+     * @param url the web url of the release
+     */
+    public synchronized void created(String project, String url) {
+        releases.add(new ProjectRelease(project, url, null));
+    }
+
+    /**
+     * Record a release that could not be created.
+     * @param project the project name
+     * @param error why it failed
+     */
+    public synchronized void failed(String project, String error) {
+        releases.add(new ProjectRelease(project, null, error));
+    }
+
+    @Exported
+    public synchronized List<ProjectRelease> getReleases() {
+        return new ArrayList<ProjectRelease>(releases);
+    }
+
+    @Exported
+    public synchronized int getFailedCount() {
+        int failed = 0;
+        for (ProjectRelease release : releases) {
+            if (!release.isCreated()) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * No sidebar entry; this action only contributes to the Build Summary page.
+     * @return null
+     */
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OctopusDeploy - Batch Release";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * The release of a single project in the batch.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class ProjectRelease implements Serializable {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        private final String project;
+        @Exported
+        public String getProject() {
+            return project;
+        }
+
+        private final String url;
+        @Exported
+        public String getUrl() {
+            return url;
+        }
+
+        private final String error;
+        @Exported
+        public String getError() {
+            return error;
+        }
+
+        public boolean isCreated() {
+            return url != null;
+        }
+
+        public ProjectRelease(String project, String url, String error) {
+            this.project = project;
+            this.url = url;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.DeploymentProcessTemplate;
+import com.octopusdeploy.api.data.SelectedPackage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+
+/**
+ * Creates releases on one Octopus server: resolves the packages of a project's deployment process template
+ * against the configured packages, the latest feed versions and the default version, then creates the release.
+ * Latest versions are not resolved for a channel with version rules, since the feed's latest version may break them.
+ * Shared by the release and batch release recorders; one instance can create releases for several projects at once.
+ */
+final class OctopusReleaseCreator {
+    private final OctopusDeployServer server;
+    private final List<PackageConfiguration> packageConfigs;
+    private final boolean resolveLatestPackageVersions;
+
+    /**
+     * @param server the Octopus server
+     * @param packageConfigs the configured packages, or null
+     * @param resolveLatestPackageVersions whether packages that are not configured are resolved to the latest version in their feed
+     */
+    OctopusReleaseCreator(OctopusDeployServer server, List<PackageConfiguration> packageConfigs, boolean resolveLatestPackageVersions) {
+        this.server = server;
+        this.packageConfigs = packageConfigs;
+        this.resolveLatestPackageVersions = resolveLatestPackageVersions;
+    }
+
+    /**
+     * Create a release of a project.
+     * @param p the project
+     * @param c the channel, or null for the project's default channel
+     * @param releaseVersion the release version
+     * @param releaseNotesContent the release notes, not yet sanitized
+     * @param defaultPackageVersion the version of required packages that are not configured or resolved
+     * @param envInjector the environment variable injector for the package configurations
+     * @param timings the build's timing summary
+     * @param log the log to write to
+     * @return the web url of the new release
+     * @throws IllegalArgumentException when the web client receives a bad parameter
+     * @throws IOException When the AuthenticatedWebClient receives and error response code
+     */
+    String createRelease(com.octopusdeploy.api.data.Project p, com.octopusdeploy.api.data.Channel c, String releaseVersion,
+            String releaseNotesContent, String defaultPackageVersion, EnvironmentVariableValueInjector envInjector,
+            OctopusTimingSummary timings, Log log) throws IllegalArgumentException, IOException {
+        long phaseStart = System.nanoTime();
+        boolean resolveLatest = resolveLatestPackageVersions && !hasVersionRules(p, c, log);
+        Set<SelectedPackage> selectedPackages = getCombinedPackageList(p.getId(), packageConfigs, envInjector.injectEnvironmentVariableValues(defaultPackageVersion), resolveLatest, log, envInjector);
+        timings.record(OctopusTimingSummary.Phase.PackageResolution, p.getName(), phaseStart, log);
+
+        // Sanitize the release notes in preparation for JSON
+        releaseNotesContent = JSONSanitizer.getInstance().sanitize(releaseNotesContent);
+        String channelId = null;
+        if (c != null) {
+            channelId = c.getId();
+        }
+        phaseStart = System.nanoTime();
+        String results = server.getApi().getReleasesApi().createRelease(p.getId(), releaseVersion, channelId, releaseNotesContent, selectedPackages);
+        timings.record(OctopusTimingSummary.Phase.ReleaseCreation, p.getName(), phaseStart, log);
+        JSONObject json = (JSONObject)JSONSerializer.toJSON(results);
+        String urlSuffix = json.getJSONObject("Links").getString("Web");
+        String url = server.getUrl();
+        if (url.endsWith("/")) {
+            url = url.substring(0, url.length() - 1);
+        }
+        return url + urlSuffix;
+    }
+
+    /**
+     * Gets a package list that is a combination of the default packages (taken from the Octopus template)
+     * and the packages selected. Selected package version overwrite the default package version for a given package
+     * @param projectId
+     * @param selectedPackages
+     * @param defaultPackageVersion
+     * @param resolveLatest whether packages that are not selected are resolved to the latest version in their feed
+     * @return A set that combines the default packages and selected packages
+     */
+    private Set<SelectedPackage> getCombinedPackageList(String projectId, List<PackageConfiguration> selectedPackages,
+            String defaultPackageVersion, boolean resolveLatest, Log log, EnvironmentVariableValueInjector envInjector)
+    {
+        Set<SelectedPackage> combinedList = new HashSet<>();
+
+        //Get all selected package names for easier lookup later
+        Map<String, SelectedPackage> selectedNames = new HashMap<>();
+        if (selectedPackages != null) {
+            for (PackageConfiguration pkgConfig : selectedPackages) {
+                String packageName = envInjector.injectEnvironmentVariableValues(pkgConfig.getPackageName());
+                SelectedPackage sp = new SelectedPackage(packageName, null, pkgConfig.getPackageReferenceName(), envInjector.injectEnvironmentVariableValues(pkgConfig.getPackageVersion()));
+                selectedNames.put(packageName, sp);
+                combinedList.add(sp);
+            }
+        }
+
+        DeploymentProcessTemplate defaultPackages = null;
+        //If not default version specified, ignore all default packages
+        try {
+            defaultPackages = OctopusMetadataCache.forServer(server).getDeploymentProcessTemplate(projectId);
+        } catch (Exception ex) {
+            //Default package retrieval unsuccessful
+            log.info(String.format("Could not retrieve default package list for project id: %s. No default packages will be used", projectId));
+        }
+
+        Map<String, String> latestVersions = new HashMap<>();
+        if (defaultPackages != null && resolveLatest) {
+            latestVersions = getLatestVersions(defaultPackages, selectedNames, log);
+        }
+
+        if (defaultPackages != null) {
+            for (SelectedPackage selPkg : defaultPackages.getSteps()) {
+                String stepName = selPkg.getStepName();
+                String packageId = selPkg.getPackageId();
+                String packageReferenceName = selPkg.getPackageReferenceName();
+
+                //Only add if it was not a selected package
+                if (!selectedNames.containsKey(stepName)) {
+                    //If packageId specified replace by stepName retrieved from DeploymentProcessTemplate
+                    //Emulates same behaviour as octo.client project https://octopus.com/docs/api-and-integration/octo.exe-command-line/creating-releases
+                    if (selectedNames.containsKey(packageId)) {
+                        SelectedPackage sc = selectedNames.get(packageId);
+                        sc.setStepName(stepName);
+                    } else {
+                        //Get the latest or default version, if not specified, warn
+                        String latestVersion = latestVersions.get(packageId);
+                        if (latestVersion != null) {
+                            combinedList.add(new SelectedPackage(stepName, null, packageReferenceName, latestVersion));
+                            log.info(String.format("Using latest version (%s) of package %s", latestVersion, stepName));
+                        } else if (defaultPackageVersion != null && !defaultPackageVersion.isEmpty()) {
+                            combinedList.add(new SelectedPackage(stepName, null, packageReferenceName, defaultPackageVersion));
+                            log.info(String.format("Using default version (%s) of package %s", defaultPackageVersion, stepName));
+                        } else {
+                            log.error(String.format("Required package %s not included because package is not in Package Configuration list and no default package version defined", stepName));
+                        }
+                    }
+                }
+            }
+        }
+
+        return combinedList;
+    }
+
+    /**
+     * Check whether the channel a release is created on has version rules, logging that latest versions are not
+     * resolved when it does. The project's default channel is checked when no channel is given.
+     * @param p the project
+     * @param c the channel, or null for the project's default channel
+     * @param log the build log
+     * @return true if the channel has version rules or they could not be checked
+     */
+    private boolean hasVersionRules(com.octopusdeploy.api.data.Project p, com.octopusdeploy.api.data.Channel c, Log log) {
+        try {
+            if (c == null) {
+                for (com.octopusdeploy.api.data.Channel channel : OctopusMetadataCache.forServer(server).getChannels(p.getId())) {
+                    if (channel.getIsDefault()) {
+                        c = channel;
+                    }
+                }
+                if (c == null) {
+                    return false;
+                }
+            }
+            if (server.getApi().getChannelsApi().hasVersionRules(c.getId())) {
+                log.info(String.format("Channel %s of project %s has version rules, latest package versions are not resolved.", c.getName(), p.getName()));
+                return true;
+            }
+            return false;
+        } catch (Exception ex) {
+            log.error(String.format("Could not check the version rules of the channel for project %s, latest package versions are not resolved - %s", p.getName(), ex.getMessage()));
+            return true;
+        }
+    }
+
+    /**
+     * Look up the latest version of every template package that is not in the Package Configurations,
+     * with one batched query per feed.
+     * @param template the deployment process template
+     * @param selectedNames the selected packages by name
+     * @param log the build log
+     * @return the latest version of each package that could be resolved, by package id
+     */
+    private Map<String, String> getLatestVersions(DeploymentProcessTemplate template, Map<String, SelectedPackage> selectedNames, Log log) {
+        Map<String, Set<String>> packageIdsByFeed = new HashMap<>();
+        for (SelectedPackage selPkg : template.getSteps()) {
+            String packageId = selPkg.getPackageId();
+            if (selPkg.getFeedId() == null || selectedNames.containsKey(selPkg.getStepName()) || selectedNames.containsKey(packageId)) {
+                continue;
+            }
+            Set<String> packageIds = packageIdsByFeed.get(selPkg.getFeedId());
+            if (packageIds == null) {
+                packageIds = new HashSet<>();
+                packageIdsByFeed.put(selPkg.getFeedId(), packageIds);
+            }
+            packageIds.add(packageId);
+        }
+
+        Map<String, String> latestVersions = new HashMap<>();
+        for (Map.Entry<String, Set<String>> feed : packageIdsByFeed.entrySet()) {
+            try {
+                latestVersions.putAll(OctopusMetadataCache.forServer(server).getLatestPackageVersions(feed.getKey(), feed.getValue()));
+            } catch (Exception ex) {
+                log.error(String.format("Could not resolve latest package versions from feed %s - %s", feed.getKey(), ex.getMessage()));
+            }
+        }
+        return latestVersions;
+    }
+}
@@ -0,0 +1,56 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.model.Action;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The final state of a deployment task that a build was waiting on when the controller restarted.
+ * The build itself was aborted by the restart; this records how the deployment actually ended.
+ */
+@ExportedBean
+public class OctopusResumedTaskSummary implements Action {
+
+    private final String taskId;
+    @Exported
+    public String getTaskId() {
+        return taskId;
+    }
+
+    private final String project;
+    @Exported
+    public String getProject() {
+        return project;
+    }
+
+    private final String state;
+    @Exported
+    public String getState() {
+        return state;
+    }
+
+    public OctopusResumedTaskSummary(String taskId, String project, String state) {
+        this.taskId = taskId;
+        this.project = project;
+        this.state = state;
+    }
+
+    /**
+     * No sidebar entry; this action only contributes to the Build Summary page.
+     * @return null
+     */
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OctopusDeploy - Deployment completed after restart";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+}
@@ -0,0 +1,128 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.TasksApi;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Copies the raw log of an Octopus task into the build console while the build waits for it.
+ * Each poll fetches only the bytes past what has already been printed, at most {@link #BYTES_PER_POLL} of them,
+ * and prints whole lines only. Once {@link #MAX_BYTES} have been printed the rest of the log is left in Octopus.
+ * When the server ignores byte ranges, each poll would download the log again from the start, so the log is
+ * instead fetched once, when the task has completed.
+ */
+public class OctopusTaskLogStreamer {
+    /**
+     * Most log bytes fetched per poll, 64 KB unless set with the
+     * hudson.plugins.octopusdeploy.OctopusTaskLogStreamer.bytesPerPoll system property. 0 turns log streaming off.
+     */
+    public static final int BYTES_PER_POLL = Integer.getInteger(OctopusTaskLogStreamer.class.getName() + ".bytesPerPoll", 64 * 1024);
+    /**
+     * Most log bytes printed for one task, 10 MB unless set with the
+     * hudson.plugins.octopusdeploy.OctopusTaskLogStreamer.maxBytes system property.
+     */
+    public static final long MAX_BYTES = Long.getLong(OctopusTaskLogStreamer.class.getName() + ".maxBytes", 10L * 1024 * 1024);
+
+    private final TasksApi tasksApi;
+    private final String taskId;
+    private final Log log;
+    private long offset;
+    private boolean stopped = BYTES_PER_POLL <= 0;
+    private boolean deferred;
+
+    public OctopusTaskLogStreamer(TasksApi tasksApi, String taskId, Log log) {
+        this.tasksApi = tasksApi;
+        this.taskId = taskId;
+        this.log = log;
+    }
+
+    /**
+     * Print the whole lines written to the task log since the last poll, up to the per-poll budget.
+     * A failure to fetch the log is reported once and turns streaming off; it never fails the wait.
+     * @return true if the budget was used up, so there is probably more to fetch right away
+     */
+    public boolean poll() {
+        return poll(false);
+    }
+
+    private boolean poll(boolean finished) {
+        if (stopped) {
+            return false;
+        }
+        if (offset >= MAX_BYTES) {
+            log.info(String.format("Task log is over %s, see Octopus for the rest of it.", OctopusDeployPushRecorder.formatBytes(MAX_BYTES)));
+            stopped = true;
+            return false;
+        }
+        if (!deferred && tasksApi.isRawLogRangeIgnored()) {
+            log.info("Octopus does not serve parts of task logs, the rest of the task log is printed once the task has completed.");
+            deferred = true;
+        }
+        if (deferred && !finished) {
+            return false;
+        }
+        int budget = deferred ? (int) Math.min(MAX_BYTES - offset, Integer.MAX_VALUE) : BYTES_PER_POLL;
+        byte[] chunk;
+        try {
+            chunk = tasksApi.getRawLog(taskId, offset, budget);
+        } catch (IOException ex) {
+            log.info("Unable to stream the task log, see Octopus for it - " + ex.getMessage());
+            stopped = true;
+            return false;
+        }
+        boolean full = chunk.length == budget;
+        int length = finished && !full ? chunk.length : printableLength(chunk, full);
+        if (length > 0) {
+            log.raw(new String(chunk, 0, length, StandardCharsets.UTF_8));
+            offset += length;
+        }
+        return full;
+    }
+
+    /**
+     * Print what is left of the log once the task has completed, within the overall limit.
+     */
+    public void drain() {
+        while (poll(true)) {
+            // keep fetching while each poll fills its budget
+        }
+        stopped = true;
+    }
+
+    /**
+     * How much of a chunk to print: up to and including its last line break, so a line is never split over two polls.
+     * A full chunk with no line break at all is printed up to its last whole UTF-8 character, so that one huge line
+     * cannot stall the stream and a character is never split over two polls.
+     * @param chunk the bytes fetched
+     * @param full whether the chunk used the whole per-poll budget
+     * @return the number of bytes to print
+     */
+    static int printableLength(byte[] chunk, boolean full) {
+        for (int i = chunk.length - 1; i >= 0; i--) {
+            if (chunk[i] == '\n') {
+                return i + 1;
+            }
+        }
+        if (!full) {
+            return 0;
+        }
+        int boundary = characterBoundary(chunk);
+        return boundary > 0 ? boundary : chunk.length;
+    }
+
+    /**
+     * The length of the chunk without a UTF-8 character that is cut off at its end.
+     */
+    private static int characterBoundary(byte[] chunk) {
+        int start = chunk.length - 1;
+        while (start > 0 && chunk.length - start < 4 && (chunk[start] & 0xC0) == 0x80) {
+            start--; // continuation byte, look for the byte the character starts with
+        }
+        if (start < 0) {
+            return 0;
+        }
+        int lead = chunk[start] & 0xFF;
+        int size = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return start + size <= chunk.length ? chunk.length : start;
+    }
+}
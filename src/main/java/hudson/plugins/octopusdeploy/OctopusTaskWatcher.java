@@ -0,0 +1,184 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.EventsApi;
+import com.octopusdeploy.api.data.Event;
+import hudson.Util;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.Timer;
+
+/**
+ * Follows the Octopus event feed of a server and wakes the builds waiting on tasks that the events are about.
+ * One request every {@link #POLL_SECONDS} covers every waiting build on the server, instead of one request per build.
+ * The feed is only followed while some build is waiting. Events only wake a build early; builds still check their
+ * task every {@link #FALLBACK_SECONDS}, so a missed event or an unreachable feed costs time, never correctness.
+ */
+public class OctopusTaskWatcher {
+    private static final Logger LOGGER = Logger.getLogger(OctopusTaskWatcher.class.getName());
+    /**
+     * Seconds between event feed requests, 3 unless set with the
+     * hudson.plugins.octopusdeploy.OctopusTaskWatcher.pollSeconds system property.
+     */
+    static final int POLL_SECONDS = Integer.getInteger(OctopusTaskWatcher.class.getName() + ".pollSeconds", 3);
+    /**
+     * Seconds a build waits for an event before checking its task anyway, 60 unless set with the
+     * hudson.plugins.octopusdeploy.OctopusTaskWatcher.fallbackSeconds system property.
+     */
+    public static final int FALLBACK_SECONDS = Integer.getInteger(OctopusTaskWatcher.class.getName() + ".fallbackSeconds", 60);
+    private static final String[] COMPLETION_CATEGORIES = {"DeploymentSucceeded", "DeploymentFailed", "TaskCanceled"};
+
+    private static final ConcurrentMap<String, OctopusTaskWatcher> watchers = new ConcurrentHashMap<String, OctopusTaskWatcher>();
+
+    private volatile OctopusDeployServer server;
+    private final Map<String, List<Subscription>> subscriptionsByTaskId = new HashMap<String, List<Subscription>>();
+    private ScheduledFuture<?> poller;
+    private volatile long cursor = -1;
+
+    private OctopusTaskWatcher(OctopusDeployServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Get the watcher for a server.
+     * Servers with the same id and url share a watcher, even across configuration reloads.
+     * @param server the configured server
+     * @return the watcher for that server
+     */
+    public static OctopusTaskWatcher forServer(OctopusDeployServer server) {
+        String key = Util.getDigestOf(server.getId() + "\n" + server.getUrl());
+        OctopusTaskWatcher watcher = watchers.get(key);
+        if (watcher == null) {
+            OctopusTaskWatcher created = new OctopusTaskWatcher(server);
+            watcher = watchers.putIfAbsent(key, created);
+            if (watcher == null) {
+                watcher = created;
+            }
+        }
+        watcher.server = server; // pick up a changed API key
+        return watcher;
+    }
+
+    /**
+     * Start watching for events about a task. The subscription must be closed once the task is done.
+     * @param taskId the task id, ex. ServerTasks-123
+     * @return the subscription to wait on
+     */
+    public synchronized Subscription watch(String taskId) {
+        Subscription subscription = new Subscription(this, taskId);
+        List<Subscription> subscriptions = subscriptionsByTaskId.get(taskId);
+        if (subscriptions == null) {
+            subscriptions = new ArrayList<Subscription>();
+            subscriptionsByTaskId.put(taskId, subscriptions);
+        }
+        subscriptions.add(subscription);
+        if (poller == null) {
+            cursor = -1;
+            poller = Timer.get().scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    poll();
+                }
+            }, 0, POLL_SECONDS, TimeUnit.SECONDS);
+        }
+        return subscription;
+    }
+
+    private synchronized void unwatch(Subscription subscription) {
+        List<Subscription> subscriptions = subscriptionsByTaskId.get(subscription.taskId);
+        if (subscriptions != null) {
+            subscriptions.remove(subscription);
+            if (subscriptions.isEmpty()) {
+                subscriptionsByTaskId.remove(subscription.taskId);
+            }
+        }
+        if (subscriptionsByTaskId.isEmpty() && poller != null) {
+            poller.cancel(false);
+            poller = null;
+        }
+    }
+
+    private void poll() {
+        try {
+            EventsApi eventsApi = server.getApi().getEventsApi();
+            if (cursor < 0) {
+                // start from now; anything earlier was seen by the builds' own first task check
+                cursor = eventsApi.getLatestAutoId();
+                return;
+            }
+            long newest = cursor;
+            for (Event event : eventsApi.getEventsAfter(cursor, COMPLETION_CATEGORIES)) {
+                newest = Math.max(newest, event.getAutoId());
+                signal(event);
+            }
+            cursor = newest;
+        } catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Unable to read the Octopus event feed of server " + server.getId(), ex);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.FINE, "Unable to read the Octopus event feed of server " + server.getId(), ex);
+        }
+    }
+
+    private synchronized void signal(Event event) {
+        for (String documentId : event.getRelatedDocumentIds()) {
+            List<Subscription> subscriptions = subscriptionsByTaskId.get(documentId);
+            if (subscriptions != null) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.signal();
+                }
+            }
+        }
+    }
+
+    /**
+     * A build's interest in the events about one task.
+     */
+    public static final class Subscription implements Closeable {
+        private final OctopusTaskWatcher watcher;
+        private final String taskId;
+        private boolean signalled;
+
+        private Subscription(OctopusTaskWatcher watcher, String taskId) {
+            this.watcher = watcher;
+            this.taskId = taskId;
+        }
+
+        /**
+         * Wait until an event about the task arrives, or the timeout passes.
+         * @param millis the most milliseconds to wait
+         * @return true if an event arrived
+         * @throws InterruptedException if the wait was interrupted
+         */
+        public synchronized boolean await(long millis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + millis;
+            while (!signalled) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            signalled = false;
+            return true;
+        }
+
+        private synchronized void signal() {
+            signalled = true;
+            notifyAll();
+        }
+
+        @Override
+        public void close() {
+            watcher.unwatch(this);
+        }
+    }
+}
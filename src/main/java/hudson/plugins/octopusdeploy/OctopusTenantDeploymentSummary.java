@@ -0,0 +1,134 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.model.Action;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The outcome of deploying a release to the tenants selected by tag: one entry per tenant.
+ * The Build Summary page shows the totals and the tenants that failed; every tenant is exported through the remote API.
+ */
+@ExportedBean
+public class OctopusTenantDeploymentSummary implements Action {
+
+    private final String releaseVersion;
+    @Exported
+    public String getReleaseVersion() {
+        return releaseVersion;
+    }
+
+    private final String environment;
+    @Exported
+    public String getEnvironment() {
+        return environment;
+    }
+
+    private final List<TenantDeployment> deployments = new ArrayList<TenantDeployment>();
+
+    public OctopusTenantDeploymentSummary(String releaseVersion, String environment) {
+        this.releaseVersion = releaseVersion;
+        this.environment = environment;
+    }
+
+    /**
+     * Record the outcome of the deployment to one tenant.
+     * @param tenant the tenant name
+     * @param url the web url of the deployment, or null if it was not created
+     * @param state the final task state, or null if it was not waited for
+     * @param error why the deployment failed, or null if it did not
+     */
+    public synchronized void record(String tenant, String url, String state, String error) {
+        deployments.add(new TenantDeployment(tenant, url, state, error));
+    }
+
+    @Exported
+    public synchronized List<TenantDeployment> getDeployments() {
+        return new ArrayList<TenantDeployment>(deployments);
+    }
+
+    public synchronized List<TenantDeployment> getFailedDeployments() {
+        List<TenantDeployment> failed = new ArrayList<TenantDeployment>();
+        for (TenantDeployment deployment : deployments) {
+            if (deployment.isFailed()) {
+                failed.add(deployment);
+            }
+        }
+        return failed;
+    }
+
+    @Exported
+    public synchronized int getFailedCount() {
+        return getFailedDeployments().size();
+    }
+
+    @Exported
+    public synchronized int getTenantCount() {
+        return deployments.size();
+    }
+
+    /**
+     * No sidebar entry; this action only contributes to the Build Summary page.
+     * @return null
+     */
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OctopusDeploy - Tenant Deployment";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * The deployment to a single tenant.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class TenantDeployment implements Serializable {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        private final String tenant;
+        @Exported
+        public String getTenant() {
+            return tenant;
+        }
+
+        private final String url;
+        @Exported
+        public String getUrl() {
+            return url;
+        }
+
+        private final String state;
+        @Exported
+        public String getState() {
+            return state;
+        }
+
+        private final String error;
+        @Exported
+        public String getError() {
+            return error;
+        }
+
+        public boolean isFailed() {
+            return error != null || "Failed".equals(state);
+        }
+
+        public TenantDeployment(String tenant, String url, String state, String error) {
+            this.tenant = tenant;
+            this.url = url;
+            this.state = state;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Tenant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable index of the tenants on one Octopus server, for servers with thousands of tenants.
+ * Tenants are kept in an array sorted by name. Ids are found through an open-addressed hash table of
+ * array positions, and every tag has a bitset of the positions of the tenants that carry it.
+ * Name and id lookups do not allocate, and a tag query combines bitsets instead of walking the tenants.
+ */
+public final class OctopusTenantIndex {
+    private static final String[] NO_TAGS = new String[0];
+
+    private final OctopusEntityTable<Tenant> tenants;
+    /** Position + 1 of the tenant with each id, 0 for an empty slot; the length is a power of two. */
+    private final int[] idSlots;
+    /** Canonical tag names, ex. Region/East, sorted ignoring case. */
+    private final String[] tags;
+    private final OctopusNameIndex tagNames;
+    /** For each tag, a bitset over tenant positions. */
+    private final long[][] tagBits;
+
+    private OctopusTenantIndex(OctopusEntityTable<Tenant> tenants, int[] idSlots, String[] tags, long[][] tagBits) {
+        this.tenants = tenants;
+        this.idSlots = idSlots;
+        this.tags = tags;
+        this.tagNames = OctopusNameIndex.wrap(tags);
+        this.tagBits = tagBits;
+    }
+
+    /**
+     * Build an index of tenants.
+     * @param tenants the tenants to index
+     * @return the index
+     */
+    public static OctopusTenantIndex of(Collection<Tenant> tenants) {
+        OctopusEntityTable<Tenant> table = OctopusEntityTable.of(tenants);
+        int size = table.size();
+
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        int[] idSlots = new int[capacity];
+        int words = (size + 63) >>> 6;
+        Map<String, long[]> bitsByTag = new TreeMap<String, long[]>(String.CASE_INSENSITIVE_ORDER);
+        for (int position = 0; position < size; position++) {
+            Tenant tenant = table.get(position);
+            if (tenant.getId() != null) {
+                int slot = slotOf(tenant.getId(), capacity - 1);
+                while (idSlots[slot] != 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                idSlots[slot] = position + 1;
+            }
+            for (String tag : tenant.getTags()) {
+                long[] bits = bitsByTag.get(tag);
+                if (bits == null) {
+                    bits = new long[words];
+                    bitsByTag.put(tag, bits);
+                }
+                bits[position >>> 6] |= 1L << position;
+            }
+        }
+        String[] tags = bitsByTag.isEmpty() ? NO_TAGS : bitsByTag.keySet().toArray(new String[bitsByTag.size()]);
+        long[][] tagBits = bitsByTag.values().toArray(new long[bitsByTag.size()][]);
+        return new OctopusTenantIndex(table, idSlots, tags, tagBits);
+    }
+
+    private static int slotOf(String id, int mask) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public int size() {
+        return tenants.size();
+    }
+
+    /**
+     * All tenants, sorted by name ignoring case.
+     * @return the tenants
+     */
+    public List<Tenant> getTenants() {
+        return tenants;
+    }
+
+    public OctopusNameIndex getNames() {
+        return tenants.getNames();
+    }
+
+    /**
+     * The tags carried by at least one tenant.
+     * @return the canonical tag names
+     */
+    public OctopusNameIndex getTagNames() {
+        return tagNames;
+    }
+
+    /**
+     * Look up a tenant by name.
+     * @param name the name
+     * @param ignoreCase whether a name that differs only in case matches when there is no exact match
+     * @return the tenant, or null if there is none with that name
+     */
+    public Tenant getByName(String name, boolean ignoreCase) {
+        return tenants.getByName(name, ignoreCase);
+    }
+
+    /**
+     * Look up a tenant by id.
+     * @param id the tenant id
+     * @return the tenant, or null if there is none with that id
+     */
+    public Tenant getById(String id) {
+        if (id == null) {
+            return null;
+        }
+        int mask = idSlots.length - 1;
+        for (int slot = slotOf(id, mask); idSlots[slot] != 0; slot = (slot + 1) & mask) {
+            Tenant tenant = tenants.get(idSlots[slot] - 1);
+            if (id.equals(tenant.getId())) {
+                return tenant;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the tenants that match a set of tags, the way Octopus matches tenant tags:
+     * a tenant must carry at least one of the tags from each tag set named in the query.
+     * For example Region/East, Region/West and Tier/Gold selects the gold tenants in either region.
+     * Tags are matched ignoring case; a tag that no tenant carries matches nothing.
+     * @param query canonical tag names, ex. Region/East
+     * @return the matching tenants, sorted by name; empty if the query is empty
+     */
+    public List<Tenant> getTenantsWithTags(Collection<String> query) {
+        if (query.isEmpty() || tenants.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] queryTags = query.toArray(new String[query.size()]);
+        int words = (tenants.size() + 63) >>> 6;
+        long[] matches = null;
+        long[] anyOfSet = new long[words];
+        for (int i = 0; i < queryTags.length; i++) {
+            String tagSet = tagSetOf(queryTags[i]);
+            if (isTagSetBefore(queryTags, i, tagSet)) {
+                continue;
+            }
+            Arrays.fill(anyOfSet, 0L);
+            for (int j = i; j < queryTags.length; j++) {
+                if (tagSet.equalsIgnoreCase(tagSetOf(queryTags[j]))) {
+                    orTag(anyOfSet, queryTags[j]);
+                }
+            }
+            if (matches == null) {
+                matches = anyOfSet.clone();
+            } else {
+                for (int w = 0; w < words; w++) {
+                    matches[w] &= anyOfSet[w];
+                }
+            }
+        }
+        List<Tenant> result = new ArrayList<Tenant>();
+        for (int w = 0; w < words; w++) {
+            long word = matches[w];
+            while (word != 0) {
+                result.add(tenants.get((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private void orTag(long[] bits, String tag) {
+        int i = tagNames.lowerBound(tag);
+        if (i < tags.length && tags[i].equalsIgnoreCase(tag)) {
+            long[] tagged = tagBits[i];
+            for (int w = 0; w < bits.length; w++) {
+                bits[w] |= tagged[w];
+            }
+        }
+    }
+
+    private static boolean isTagSetBefore(String[] queryTags, int end, String tagSet) {
+        for (int j = 0; j < end; j++) {
+            if (tagSet.equalsIgnoreCase(tagSetOf(queryTags[j]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tag set of a canonical tag name, ex. Region for Region/East.
+     */
+    private static String tagSetOf(String tag) {
+        int slash = tag.indexOf('/');
+        return slash < 0 ? "" : tag.substring(0, slash);
+    }
+}
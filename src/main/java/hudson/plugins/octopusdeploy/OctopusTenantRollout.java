@@ -0,0 +1,352 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.OctopusApi;
+import com.octopusdeploy.api.data.Environment;
+import com.octopusdeploy.api.data.Task;
+import com.octopusdeploy.api.data.Tenant;
+import com.octopusdeploy.api.data.Variable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+
+/**
+ * Rolls a release out to many tenants in waves, from a single loop on the build thread.
+ * Deployments of a wave are started while fewer than the maximum are in flight, and all in-flight tasks are checked
+ * together with one request per poll, so the number of tenants only changes how long the rollout takes.
+ * The next wave starts once every deployment of the previous one has finished, after an optional pause.
+ * When too many of the finished deployments have failed, no further deployments are started.
+ * Each tenant gets a line in the build log when its deployment is created and another when it finishes,
+ * and its outcome is recorded in an {@link OctopusTenantDeploymentSummary}.
+ * The per environment limit of {@link OctopusDeploymentGate} applies to every tenant's deployment.
+ * A task that Octopus no longer returns is failed after a few checks, and the whole rollout is bounded by a timeout
+ * (24 hours unless set with the hudson.plugins.octopusdeploy.OctopusTenantRollout.timeoutMinutes system property),
+ * after which deployments still in progress are no longer followed and are reported as failed.
+ */
+class OctopusTenantRollout {
+    private static final long POLL_MILLIS = 5000;
+    private static final long PROGRESS_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    static final int MAX_POLL_ERRORS = 5;
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(
+            Integer.getInteger(OctopusTenantRollout.class.getName() + ".timeoutMinutes", 24 * 60));
+    /** Failures are only compared to the limit once this many deployments have finished. */
+    static final int MIN_FINISHED_FOR_ABORT = 5;
+    private static final String ABORTED = "Not deployed, the rollout was aborted";
+
+    private final OctopusDeployServer server;
+    private final OctopusApi api;
+    private final String projectId;
+    private final String releaseId;
+    private final Environment environment;
+    private final Set<Variable> variables;
+    private final boolean waitForDeployment;
+    private final int maxInFlight;
+    private final int waveSize;
+    private final int pauseBetweenWavesSeconds;
+    private final int maxFailurePercent;
+    private final OctopusTenantDeploymentSummary summary;
+    private final Log log;
+
+    private final Map<String, InFlight> inFlight = new LinkedHashMap<String, InFlight>();
+    private int total;
+    private int finished;
+    private int failed;
+    private boolean aborted;
+    private boolean timedOut;
+    private long deadline;
+
+    /**
+     * @param server the Octopus server
+     * @param projectId the project of the release
+     * @param releaseId the release to deploy
+     * @param environment the environment to deploy to
+     * @param variables prompted variables to set, or null; deployments in progress are only joined when there are none
+     * @param waitForDeployment whether to wait for each deployment to finish
+     * @param maxInFlight the most deployments of this rollout in progress at the same time
+     * @param waveSize the number of tenants in each wave; 0 or less for a single wave
+     * @param pauseBetweenWavesSeconds how long to wait before starting the next wave
+     * @param maxFailurePercent the share of finished deployments that may fail before the rollout stops; 100 to never stop
+     * @param summary where to record the outcome of each tenant
+     * @param log the build log
+     */
+    OctopusTenantRollout(OctopusDeployServer server, String projectId, String releaseId, Environment environment,
+            Set<Variable> variables, boolean waitForDeployment, int maxInFlight, int waveSize, int pauseBetweenWavesSeconds,
+            int maxFailurePercent, OctopusTenantDeploymentSummary summary, Log log) {
+        this.server = server;
+        this.api = server.getApi();
+        this.projectId = projectId;
+        this.releaseId = releaseId;
+        this.environment = environment;
+        this.variables = variables;
+        this.waitForDeployment = waitForDeployment;
+        this.maxInFlight = maxInFlight;
+        this.waveSize = waveSize;
+        this.pauseBetweenWavesSeconds = pauseBetweenWavesSeconds;
+        this.maxFailurePercent = maxFailurePercent;
+        this.summary = summary;
+        this.log = log;
+    }
+
+    /**
+     * Deploy to every tenant, wave by wave.
+     * Deployments are followed until they finish when waiting for deployments or when there is more than one wave.
+     * @param tenants the tenants to deploy to
+     * @return true if every deployment was created and none failed
+     * @throws InterruptedException if the build was aborted
+     */
+    boolean deploy(List<Tenant> tenants) throws InterruptedException {
+        total = tenants.size();
+        deadline = now() + TIMEOUT_MILLIS;
+        int size = waveSize > 0 ? Math.min(waveSize, total) : total;
+        int waves = (total + size - 1) / size;
+        boolean follow = waitForDeployment || waves > 1;
+        try {
+            for (int wave = 0; wave < waves; wave++) {
+                List<Tenant> waveTenants = tenants.subList(wave * size, Math.min(total, (wave + 1) * size));
+                if (aborted) {
+                    skip(waveTenants);
+                    continue;
+                }
+                if (wave > 0 && pauseBetweenWavesSeconds > 0) {
+                    log.info(String.format("Pausing %d s before the next wave.", pauseBetweenWavesSeconds));
+                    sleep(TimeUnit.SECONDS.toMillis(pauseBetweenWavesSeconds));
+                }
+                if (waves > 1) {
+                    log.info(String.format("Wave %d of %d: %d tenants", wave + 1, waves, waveTenants.size()));
+                }
+                runWave(waveTenants, follow);
+            }
+        } finally {
+            for (InFlight deployment : inFlight.values()) {
+                deployment.slot.close();
+            }
+        }
+        log.info(String.format("%d of %d tenant deployments finished, %d failed.", finished, total, failed));
+        return failed == 0 && !aborted;
+    }
+
+    private void runWave(List<Tenant> waveTenants, boolean follow) throws InterruptedException {
+        Deque<Tenant> pending = new ArrayDeque<Tenant>(waveTenants);
+        int pollErrors = 0;
+        long nextProgress = now() + PROGRESS_MILLIS;
+        while (true) {
+            if (!timedOut && now() >= deadline) {
+                timedOut = true;
+                aborted = true;
+                log.error(String.format("Stopping the rollout: it has run for more than %d minutes.", TimeUnit.MILLISECONDS.toMinutes(TIMEOUT_MILLIS)));
+                abandonInFlight("Still in progress when the rollout timed out, see Octopus for its outcome");
+            }
+            while (!aborted && !pending.isEmpty() && inFlight.size() < maxInFlight) {
+                OctopusDeploymentGate.Permit slot = tryAcquireSlot();
+                if (slot == null) {
+                    break; // the environment is busy; try again after the next poll
+                }
+                start(pending.removeFirst(), slot, follow);
+            }
+            if (aborted) {
+                skip(pending);
+                pending.clear();
+            }
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                return;
+            }
+            sleep(POLL_MILLIS + (long)(Math.random() * 100));
+            if (!inFlight.isEmpty()) {
+                try {
+                    poll();
+                    pollErrors = 0;
+                } catch (IOException ex) {
+                    pollErrors++;
+                    log.info(String.format("Unable to check %d tenant deployments - %s", inFlight.size(), ex.getMessage()));
+                    if (pollErrors >= MAX_POLL_ERRORS) {
+                        abandonInFlight("Could not check the deployment task - " + ex.getMessage());
+                    }
+                }
+            }
+            if (now() >= nextProgress) {
+                log.info(String.format("%d of %d tenant deployments finished, %d failed, %d in progress, %d waiting to start.",
+                        finished, total, failed, inFlight.size(), pending.size()));
+                nextProgress += PROGRESS_MILLIS;
+            }
+        }
+    }
+
+    /**
+     * Create the deployment to a tenant, and follow it until it finishes if asked to.
+     */
+    private void start(Tenant tenant, OctopusDeploymentGate.Permit slot, boolean follow) {
+        String url = null;
+        try {
+            JSONObject deployment = JSONObject.fromObject(createDeployment(tenant));
+            url = getServerUrl() + deployment.getJSONObject("Links").getString("Web");
+            log.info(String.format("Tenant %s: deployment created %s", tenant.getName(), url));
+            if (follow) {
+                inFlight.put(deployment.getString("TaskId"), new InFlight(tenant, url, slot));
+                slot = null;
+            } else {
+                summary.record(tenant.getName(), url, null, null);
+                finished++;
+            }
+        } catch (IOException ex) {
+            finish(tenant, url, null, ex.getMessage());
+        } catch (RuntimeException ex) {
+            // an unexpected response; the other tenants carry on
+            finish(tenant, url, null, ex.toString());
+        } finally {
+            if (slot != null) {
+                slot.close();
+            }
+        }
+    }
+
+    /**
+     * Check every in-flight task at once and record the ones that have finished.
+     * A task missing from the response is asked for on its own; one that cannot be found
+     * {@link #MAX_POLL_ERRORS} polls in a row is recorded as failed.
+     */
+    private void poll() throws IOException {
+        Map<String, Task> tasks = getTasks(inFlight.keySet());
+        Iterator<Map.Entry<String, InFlight>> deployments = inFlight.entrySet().iterator();
+        while (deployments.hasNext()) {
+            Map.Entry<String, InFlight> entry = deployments.next();
+            InFlight deployment = entry.getValue();
+            Task task = tasks.get(entry.getKey());
+            if (task == null) {
+                try {
+                    task = getTask(entry.getKey());
+                } catch (IOException ex) {
+                    if (++deployment.missingPolls < MAX_POLL_ERRORS) {
+                        continue;
+                    }
+                    deployments.remove();
+                    deployment.slot.close();
+                    finish(deployment.tenant, deployment.url, null, String.format("Task %s could not be found - %s", entry.getKey(), ex.getMessage()));
+                    continue;
+                }
+            }
+            deployment.missingPolls = 0;
+            if (task.getIsCompleted()) {
+                deployments.remove();
+                deployment.slot.close();
+                log.info(String.format("Tenant %s: %s", deployment.tenant.getName(), task.getState()));
+                finish(deployment.tenant, deployment.url, task.getState(), null);
+            }
+        }
+    }
+
+    private void abandonInFlight(String error) {
+        for (InFlight deployment : inFlight.values()) {
+            deployment.slot.close();
+            finish(deployment.tenant, deployment.url, null, error);
+        }
+        inFlight.clear();
+    }
+
+    private void finish(Tenant tenant, String url, String state, String error) {
+        if (error != null) {
+            log.error(String.format("Tenant %s: deployment failed - %s", tenant.getName(), error));
+        }
+        summary.record(tenant.getName(), url, state, error);
+        finished++;
+        if (error != null || "Failed".equals(state)) {
+            failed++;
+        }
+        if (!aborted && exceedsFailureLimit(failed, finished, total, maxFailurePercent)) {
+            aborted = true;
+            log.error(String.format("Stopping the rollout: %d of %d finished deployments failed, over the limit of %d%%. "
+                    + "Deployments already in progress are still followed.", failed, finished, maxFailurePercent));
+        }
+    }
+
+    private void skip(Iterable<Tenant> tenants) {
+        for (Tenant tenant : tenants) {
+            summary.record(tenant.getName(), null, null, ABORTED);
+        }
+    }
+
+    /**
+     * Whether a rollout has had too many failures to carry on.
+     * @param failed the deployments that failed
+     * @param finished the deployments that finished, including the failed ones
+     * @param total the number of tenants in the rollout
+     * @param maxFailurePercent the share of finished deployments that may fail; 100 or more to never stop
+     * @return true to stop starting deployments
+     */
+    static boolean exceedsFailureLimit(int failed, int finished, int total, int maxFailurePercent) {
+        if (maxFailurePercent >= 100 || failed == 0) {
+            return false;
+        }
+        return finished >= Math.min(MIN_FINISHED_FOR_ABORT, total) && failed * 100L > (long) maxFailurePercent * finished;
+    }
+
+    /**
+     * Create the deployment to a tenant, or join one of the same release that is already in progress.
+     */
+    String createDeployment(Tenant tenant) throws IOException {
+        if (OctopusDeployDeploymentRecorder.COALESCE_DEPLOYMENTS && (variables == null || variables.isEmpty())) {
+            try {
+                String deployment = api.getDeploymentsApi().getInFlightDeployment(projectId, releaseId, environment.getId(), tenant.getId());
+                if (deployment != null) {
+                    log.info(String.format("Tenant %s: this release is already being deployed, following that deployment.", tenant.getName()));
+                    return deployment;
+                }
+            } catch (Exception ex) {
+                log.info(String.format("Tenant %s: unable to check for a deployment in progress, deploying - %s", tenant.getName(), ex.getMessage()));
+            }
+        }
+        return api.getDeploymentsApi().executeDeployment(releaseId, environment.getId(), tenant.getId(), variables);
+    }
+
+    Map<String, Task> getTasks(Collection<String> taskIds) throws IOException {
+        return api.getTasksApi().getTasks(taskIds);
+    }
+
+    Task getTask(String taskId) throws IOException {
+        return api.getTasksApi().getTask(taskId);
+    }
+
+    /**
+     * Take a slot of the environment's deployment limit without waiting.
+     * @return the slot, or null if the environment is at its limit
+     */
+    OctopusDeploymentGate.Permit tryAcquireSlot() {
+        return OctopusDeploymentGate.tryAcquire(server, environment.getId(),
+                AbstractOctopusDeployRecorder.getMaxConcurrentDeploymentsPerEnvironment());
+    }
+
+    void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private String getServerUrl() {
+        String url = server.getUrl();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * A deployment being followed, holding its environment slot until it finishes.
+     */
+    private static final class InFlight {
+        private final Tenant tenant;
+        private final String url;
+        private final OctopusDeploymentGate.Permit slot;
+        private int missingPolls;
+
+        InFlight(Tenant tenant, String url, OctopusDeploymentGate.Permit slot) {
+            this.tenant = tenant;
+            this.url = url;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Records how long each phase of talking to Octopus took during a build.
+ * Shown on the Build Summary page and exported through the remote API
+ * (ex. job/[name]/[number]/api/json) for trend analysis.
+ */
+@ExportedBean
+public class OctopusTimingSummary implements Action {
+
+    private final List<PhaseTiming> phaseTimings = new ArrayList<PhaseTiming>();
+
+    /**
+     * Get the timing summary for a build, attaching a new one if there is none yet.
+     * The release recorder and the deployment recorder share a single summary.
+     * @param build the build to record timings on
+     * @return the build's timing summary
+     */
+    public static OctopusTimingSummary forBuild(AbstractBuild build) {
+        synchronized (build) {
+            OctopusTimingSummary summary = (OctopusTimingSummary) build.getAction(OctopusTimingSummary.class);
+            if (summary == null) {
+                summary = new OctopusTimingSummary();
+                build.addAction(summary);
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * Record a completed phase and write it to the build log.
+     * @param phase the phase that completed
+     * @param subject what the phase worked on, usually the project name
+     * @param startNanos the System.nanoTime() at which the phase started
+     * @param log the build log
+     */
+    public void record(Phase phase, String subject, long startNanos, Log log) {
+        record(phase, subject, startNanos, System.nanoTime(), log);
+    }
+
+    /**
+     * Record a phase that ended at a known time and write it to the build log.
+     * @param phase the phase that completed
+     * @param subject what the phase worked on, usually the project name
+     * @param startNanos the System.nanoTime() at which the phase started
+     * @param endNanos the System.nanoTime() at which the phase ended
+     * @param log the build log
+     */
+    public void record(Phase phase, String subject, long startNanos, long endNanos, Log log) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+        PhaseTiming timing = new PhaseTiming(phase, subject, millis);
+        synchronized (this) {
+            phaseTimings.add(timing);
+        }
+        log.info(String.format("Timing: %s (%s) took %d ms", phase.getDisplayName(), subject, millis));
+    }
+
+    /**
+     * All phase timings recorded for this build, in the order they completed.
+     * @return a copy of the recorded timings
+     */
+    @Exported
+    public synchronized List<PhaseTiming> getPhaseTimings() {
+        return new ArrayList<PhaseTiming>(phaseTimings);
+    }
+
+    /**
+     * Total time spent talking to Octopus, across all phases.
+     * @return total in milliseconds
+     */
+    @Exported
+    public synchronized long getTotalMillis() {
+        long total = 0;
+        for (PhaseTiming timing : phaseTimings) {
+            total += timing.getMillis();
+        }
+        return total;
+    }
+
+    public String getTotalDuration() {
+        return Util.getTimeSpanString(getTotalMillis());
+    }
+
+    /**
+     * No sidebar entry; this action only contributes to the Build Summary page.
+     * @return null
+     */
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "OctopusDeploy - Timings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+    /**
+     * The phases of creating a release and deploying it that are timed.
+     */
+    public enum Phase {
+        Lookup("Lookup"),
+        PackageResolution("Package resolution"),
+        ReleaseCreation("Release POST"),
+        DeploymentCreation("Deployment POST"),
+        QueueWait("Queue wait"),
+        AdmissionWait("Admission wait"),
+        ExecutionWait("Execution wait"),
+        TenantRollout("Tenant rollout"),
+        PackagePush("Package push");
+
+        private final String displayName;
+
+        Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * The duration of a single phase.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class PhaseTiming implements Serializable {
+        // This value should be incremented every time that this serializable's contract changes
+        private static final long serialVersionUID = 1;
+
+        private final Phase phase;
+        @Exported
+        public Phase getPhase() {
+            return phase;
+        }
+
+        private final String subject;
+        @Exported
+        public String getSubject() {
+            return subject;
+        }
+
+        private final long millis;
+        @Exported
+        public long getMillis() {
+            return millis;
+        }
+
+        public String getDuration() {
+            return Util.getTimeSpanString(millis);
+        }
+
+        public PhaseTiming(Phase phase, String subject, long millis) {
+            this.phase = phase;
+            this.subject = subject;
+            this.millis = millis;
+        }
+    }
+}
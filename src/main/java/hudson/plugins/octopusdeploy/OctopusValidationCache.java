@@ -0,0 +1,103 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.util.FormValidation;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers recent form validation results, so that re-validating the same field value
+ * (which the job configuration page does on every change of a related field) does not call Octopus again.
+ * Concurrent checks of the same value share a single call.
+ * Results are kept for 30 seconds by default, set with the
+ * hudson.plugins.octopusdeploy.OctopusValidationCache.ttlSeconds system property; 0 disables the cache.
+ */
+public final class OctopusValidationCache {
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(
+            Integer.getInteger(OctopusValidationCache.class.getName() + ".ttlSeconds", 30));
+    private static final int PURGE_THRESHOLD = 1000;
+
+    private static final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private OctopusValidationCache() {
+    }
+
+    /**
+     * Get a recent validation result, or run the validation.
+     * @param serverId the server the value is validated against
+     * @param field the field being validated, including any other values the result depends on
+     * @param value the value being validated
+     * @param validation the validation to run if there is no recent result
+     * @return the validation result
+     */
+    public static FormValidation validate(String serverId, String field, String value, Callable<FormValidation> validation) {
+        if (TTL_NANOS <= 0) {
+            return run(new FutureTask<FormValidation>(validation));
+        }
+        String key = serverId + "\n" + field + "\n" + value;
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry == null || entry.isExpired(now)) {
+            Entry created = new Entry(new FutureTask<FormValidation>(validation), now + TTL_NANOS);
+            boolean won = entry == null ? entries.putIfAbsent(key, created) == null : entries.replace(key, entry, created);
+            if (won) {
+                if (entries.size() > PURGE_THRESHOLD) {
+                    purgeExpired(now);
+                }
+                return run(created.task);
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                return run(created.task);
+            }
+        }
+        return run(entry.task);
+    }
+
+    /**
+     * Forget all results, ex. after the server configuration changed.
+     */
+    public static void clear() {
+        entries.clear();
+    }
+
+    private static FormValidation run(FutureTask<FormValidation> task) {
+        task.run(); // no-op once it has run
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return FormValidation.warning("Unable to validate field - interrupted");
+        } catch (ExecutionException ex) {
+            return FormValidation.warning("Unable to validate field - " + ex.getCause().getMessage());
+        }
+    }
+
+    private static void purgeExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().isExpired(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final FutureTask<FormValidation> task;
+        private final long expiresAt;
+
+        Entry(FutureTask<FormValidation> task, long expiresAt) {
+            this.task = task;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
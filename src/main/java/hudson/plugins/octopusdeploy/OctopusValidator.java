@@ -6,15 +6,44 @@ import hudson.util.FormValidation;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * Validations on input for OctopusDeploy.
+ * Validators created for a configured server look names up in its metadata cache first,
+ * and share recent results through the OctopusValidationCache.
  */
 public class OctopusValidator {
     private final OctopusApi api;
+    private final String serverId;
+    private final OctopusMetadataCache metadata;
     
     public OctopusValidator(OctopusApi api) {
         this.api = api;
+        this.serverId = null;
+        this.metadata = null;
+    }
+
+    public OctopusValidator(OctopusDeployServer server) {
+        this.api = server.getApi();
+        this.serverId = server.getId();
+        this.metadata = OctopusMetadataCache.forServer(server);
+    }
+
+    private FormValidation cached(String field, String value, Callable<FormValidation> validation) {
+        if (serverId == null) {
+            try {
+                return validation.call();
+            } catch (Exception ex) {
+                return FormValidation.warning("Unable to validate field - " + ex.getMessage());
+            }
+        }
+        return OctopusValidationCache.validate(serverId, field, value, validation);
+    }
+
+    private com.octopusdeploy.api.data.Project findProject(String projectName, boolean ignoreCase) throws IOException {
+        com.octopusdeploy.api.data.Project p = metadata == null ? null : metadata.getIndex().getProjectByName(projectName, ignoreCase);
+        return p != null ? p : api.getProjectsApi().getProjectByName(projectName, ignoreCase);
     }
 
     /**
@@ -26,12 +55,21 @@ public class OctopusValidator {
      * @param projectName name of the project to validate.
      * @return a form validation.
      */
-    public FormValidation validateProject(String projectName) {
+    public FormValidation validateProject(final String projectName) {
         if (projectName.isEmpty()) {
             return FormValidation.error("Please provide a project name.");
         }
+        return cached("project", projectName, new Callable<FormValidation>() {
+            @Override
+            public FormValidation call() {
+                return checkProject(projectName);
+            }
+        });
+    }
+
+    private FormValidation checkProject(String projectName) {
         try {
-            com.octopusdeploy.api.data.Project p = api.getProjectsApi().getProjectByName(projectName, true);
+            com.octopusdeploy.api.data.Project p = findProject(projectName, true);
             if (p == null)
             {
                 return FormValidation.error("Project not found.");
@@ -59,30 +97,42 @@ public class OctopusValidator {
      * @param projectName name of the project to validate.
      * @return a form validation.
      */
-    public FormValidation validateChannel(String channelName, String projectName) {
+    public FormValidation validateChannel(final String channelName, final String projectName) {
         if (channelName != null && !channelName.isEmpty()) {
             if (projectName == null || projectName.isEmpty()) {
                 return FormValidation.warning("Project must be set to validate this field.");
             }
-            com.octopusdeploy.api.data.Project project;
-            com.octopusdeploy.api.data.Channel channel;
-            try {
-                project = api.getProjectsApi().getProjectByName(projectName);
-                if (project != null) {
-                    channel = api.getChannelsApi().getChannelByName(project.getId(), channelName);
-                    if (channel == null) {
-                        return FormValidation.error("Channel not found.");
-                    }
+            return cached("channel\n" + projectName, channelName, new Callable<FormValidation>() {
+                @Override
+                public FormValidation call() {
+                    return checkChannel(channelName, projectName);
                 }
-                else
-                {
-                    return FormValidation.warning("Project must be set to validate this field.");
+            });
+        }
+        return FormValidation.ok();
+    }
+
+    private FormValidation checkChannel(String channelName, String projectName) {
+        com.octopusdeploy.api.data.Project project;
+        com.octopusdeploy.api.data.Channel channel;
+        try {
+            project = findProject(projectName, false);
+            if (project != null) {
+                channel = metadata != null
+                        ? metadata.getChannelByName(project.getId(), channelName)
+                        : api.getChannelsApi().getChannelByName(project.getId(), channelName);
+                if (channel == null) {
+                    return FormValidation.error("Channel not found.");
                 }
-            } catch (IllegalArgumentException ex) {
-                return FormValidation.warning("Unable to validate field - " + ex.getMessage());
-            } catch (IOException ex) {
-                return FormValidation.warning("Unable to validate field - " + ex.getMessage());
             }
+            else
+            {
+                return FormValidation.warning("Project must be set to validate this field.");
+            }
+        } catch (IllegalArgumentException ex) {
+            return FormValidation.warning("Unable to validate field - " + ex.getMessage());
+        } catch (IOException ex) {
+            return FormValidation.warning("Unable to validate field - " + ex.getMessage());
         }
         return FormValidation.ok();
     }
@@ -96,12 +146,24 @@ public class OctopusValidator {
      * @param environmentName the name of the environment to validate.
      * @return a form validation.
      */
-    public FormValidation validateEnvironment(String environmentName) {
+    public FormValidation validateEnvironment(final String environmentName) {
         if (environmentName.isEmpty()) {
             return FormValidation.error("Please provide an environment name.");
         }
+        return cached("environment", environmentName, new Callable<FormValidation>() {
+            @Override
+            public FormValidation call() {
+                return checkEnvironment(environmentName);
+            }
+        });
+    }
+
+    private FormValidation checkEnvironment(String environmentName) {
         try {
-            com.octopusdeploy.api.data.Environment env = api.getEnvironmentsApi().getEnvironmentByName(environmentName, true);
+            com.octopusdeploy.api.data.Environment env = metadata == null ? null : metadata.getIndex().getEnvironmentByName(environmentName, true);
+            if (env == null) {
+                env = api.getEnvironmentsApi().getEnvironmentByName(environmentName, true);
+            }
             if (env == null)
             {
                 return FormValidation.error("Environment not found.");
@@ -129,10 +191,19 @@ public class OctopusValidator {
      * @param existanceCheckReq the requirement for the existence of the release.
      * @return FormValidation response
      */
-    public FormValidation validateRelease(String releaseVersion, String projectId, ReleaseExistenceRequirement existanceCheckReq) {
+    public FormValidation validateRelease(final String releaseVersion, final String projectId, final ReleaseExistenceRequirement existanceCheckReq) {
         if (releaseVersion.isEmpty()) {
             return FormValidation.error("Please provide a release version.");
         }
+        return cached("release\n" + projectId + "\n" + existanceCheckReq, releaseVersion, new Callable<FormValidation>() {
+            @Override
+            public FormValidation call() {
+                return checkRelease(releaseVersion, projectId, existanceCheckReq);
+            }
+        });
+    }
+
+    private FormValidation checkRelease(String releaseVersion, String projectId, ReleaseExistenceRequirement existanceCheckReq) {
         try {
             Set<Release> releases = api.getReleasesApi().getReleasesForProject(projectId);
             boolean found = false;
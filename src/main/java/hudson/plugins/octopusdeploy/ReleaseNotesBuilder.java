@@ -0,0 +1,131 @@
+package hudson.plugins.octopusdeploy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds release notes from SCM change messages with a bounded size.
+ * Builds are added newest first and each build's changes in commit order; the notes come out oldest first.
+ * Once the entry or length limit is reached no more changes are accepted, older changes are dropped and
+ * a truncation marker is put at the top of the notes.
+ * A commit that shows up in several builds (ex. a rebuild) is only listed once.
+ * A build without changes counts as one entry, and at most maxBuilds builds are read, so that a long run of
+ * builds without changes cannot make the walk through the build history unbounded.
+ */
+public class ReleaseNotesBuilder {
+    /**
+     * Default most changes in a set of release notes, 1000 unless set with the
+     * hudson.plugins.octopusdeploy.ReleaseNotesBuilder.maxEntries system property.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger(ReleaseNotesBuilder.class.getName() + ".maxEntries", 1000);
+    /**
+     * Default longest release notes in characters, 100000 unless set with the
+     * hudson.plugins.octopusdeploy.ReleaseNotesBuilder.maxLength system property.
+     */
+    public static final int DEFAULT_MAX_LENGTH = Integer.getInteger(ReleaseNotesBuilder.class.getName() + ".maxLength", 100000);
+    /**
+     * Default most builds read for a set of release notes, 100 unless set with the
+     * hudson.plugins.octopusdeploy.ReleaseNotesBuilder.maxBuilds system property.
+     */
+    public static final int DEFAULT_MAX_BUILDS = Integer.getInteger(ReleaseNotesBuilder.class.getName() + ".maxBuilds", 100);
+
+    private final int maxEntries;
+    private final int maxLength;
+    private final int maxBuilds;
+    private final List<StringBuilder> builds = new ArrayList<StringBuilder>();
+    private final Set<String> seenCommits = new HashSet<String>();
+    private int entries;
+    private int entriesAtBuildStart;
+    private int length;
+    private boolean truncated;
+
+    public ReleaseNotesBuilder() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_LENGTH, DEFAULT_MAX_BUILDS);
+    }
+
+    public ReleaseNotesBuilder(int maxEntries, int maxLength) {
+        this(maxEntries, maxLength, DEFAULT_MAX_BUILDS);
+    }
+
+    public ReleaseNotesBuilder(int maxEntries, int maxLength, int maxBuilds) {
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+        this.maxBuilds = maxBuilds;
+    }
+
+    /**
+     * Start collecting the changes of a build that is older than all builds added so far.
+     * The previous build counts as one entry if it added no changes.
+     * @return false once the notes are full or maxBuilds builds were started, in which case the build should not be read
+     */
+    public boolean startOlderBuild() {
+        if (!builds.isEmpty() && entries == entriesAtBuildStart) {
+            entries++;
+        }
+        if (isFull() || builds.size() >= maxBuilds) {
+            truncated = true;
+            return false;
+        }
+        builds.add(new StringBuilder());
+        entriesAtBuildStart = entries;
+        return true;
+    }
+
+    /**
+     * Add a change of the current build.
+     * @param commitId the commit id, or null if the SCM has none
+     * @param message the change message
+     * @return false once the notes are full, in which case no more changes should be added
+     */
+    public boolean add(String commitId, String message) {
+        if (isFull()) {
+            truncated = true;
+            return false;
+        }
+        if (commitId != null && !seenCommits.add(commitId)) {
+            return true;
+        }
+        if (builds.isEmpty()) {
+            startOlderBuild();
+        }
+        String line = (message == null ? "" : message) + "\n";
+        if (length + line.length() > maxLength) {
+            truncated = true;
+            return false;
+        }
+        builds.get(builds.size() - 1).append(line);
+        entries++;
+        length += line.length();
+        return true;
+    }
+
+    public boolean isFull() {
+        return entries >= maxEntries || length >= maxLength;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * The release notes, oldest change first.
+     * @return the notes, starting with a truncation marker if changes were dropped
+     */
+    @Override
+    public String toString() {
+        StringBuilder notes = new StringBuilder(length + 100);
+        if (truncated) {
+            notes.append(String.format("[Older changes omitted - release notes are limited to %d changes and %d characters]\n", maxEntries, maxLength));
+        }
+        for (int i = builds.size() - 1; i >= 0; i--) {
+            notes.append(builds.get(i));
+        }
+        return notes.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.octopusdeploy.api;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ApiCall endpoint templates
+ */
+public class ApiCallTest {
+
+    @Test
+    public void testStaticResourceIsUnchanged() {
+        assertEquals("api/projects/all", ApiCall.toEndpointTemplate("api/projects/all"));
+        assertEquals("api/deployments", ApiCall.toEndpointTemplate("api/deployments"));
+    }
+
+    @Test
+    public void testResourceIdsAreReplaced() {
+        assertEquals("api/projects/{id}/releases", ApiCall.toEndpointTemplate("api/projects/Projects-123/releases"));
+        assertEquals("api/tasks/{id}", ApiCall.toEndpointTemplate("api/tasks/ServerTasks-98765"));
+        assertEquals("api/releases/{id}/deployments/preview/{id}",
+                ApiCall.toEndpointTemplate("api/releases/Releases-5/deployments/preview/Environments-1"));
+    }
+
+    @Test
+    public void testPrefixedResourceIdsAreReplaced() {
+        assertEquals("api/deploymentprocesses/deploymentprocess-{id}/template",
+                ApiCall.toEndpointTemplate("api/deploymentprocesses/deploymentprocess-Projects-42/template"));
+    }
+
+    @Test
+    public void testQueryStringAndNumericSegmentsAreDropped() {
+        assertEquals("api/events", ApiCall.toEndpointTemplate("api/events?fromAutoId=100"));
+        assertEquals("api/things/{id}", ApiCall.toEndpointTemplate("api/things/42"));
+    }
+}
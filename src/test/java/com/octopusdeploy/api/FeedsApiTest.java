@@ -0,0 +1,18 @@
+package com.octopusdeploy.api;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for telling pre-release package versions apart
+ */
+public class FeedsApiTest {
+
+    @Test
+    public void testPreReleaseVersions() {
+        assertTrue(FeedsApi.isPreRelease("1.2.0-beta1"));
+        assertTrue(FeedsApi.isPreRelease("1.2.0-rc.1+build-5"));
+        assertFalse(FeedsApi.isPreRelease("1.2.0"));
+        assertFalse(FeedsApi.isPreRelease("1.2.0+build-5"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.octopusdeploy.api;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for built-in package id mapping
+ */
+public class PackagesApiTest {
+
+    @Test
+    public void testExtensionIsStripped() {
+        assertEquals("packages-MyApp.1.0.0", PackagesApi.toBuiltInPackageId("MyApp.1.0.0.zip"));
+        assertEquals("packages-MyApp.1.0.0", PackagesApi.toBuiltInPackageId("MyApp.1.0.0.nupkg"));
+        assertEquals("packages-MyApp.1.0.0", PackagesApi.toBuiltInPackageId("MyApp.1.0.0.TAR.GZ"));
+    }
+
+    @Test
+    public void testUnknownExtensionIsKept() {
+        assertEquals("packages-MyApp.1.0.0.bin", PackagesApi.toBuiltInPackageId("MyApp.1.0.0.bin"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.octopusdeploy.api;
+
+import com.octopusdeploy.api.data.Variable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for picking the prompted variables to override
+ */
+public class VariablesApiTest {
+
+    @Test
+    public void testOnlySetPromptedVariablesAreOverridden() {
+        Map<String, Variable> prompted = new HashMap<String, Variable>();
+        prompted.put("Password", new Variable("Variables-1", "Password", null, "The password"));
+        prompted.put("Region", new Variable("Variables-2", "Region", null, ""));
+        prompted.put("Url", new Variable("Variables-3", "Url", null, ""));
+        Properties entry = new Properties();
+        entry.setProperty("Password", "secret");
+        entry.setProperty("Region", "");
+        entry.setProperty("Unknown", "value");
+
+        Set<Variable> overrides = VariablesApi.getOverrides(prompted, entry);
+
+        assertEquals(1, overrides.size());
+        Variable override = overrides.iterator().next();
+        assertEquals("Variables-1", override.getId());
+        assertEquals("secret", override.getValue());
+    }
+}
@@ -0,0 +1,76 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.model.StreamBuildListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OctopusDeploymentGate admission order
+ */
+public class OctopusDeploymentGateTest {
+    private static final OctopusDeployServer SERVER = new OctopusDeployServer("gate-test", "http://octopus.example", "API-TEST");
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Log log = new Log(new StreamBuildListener(output, Charset.defaultCharset()));
+
+    @Test
+    public void testNoLimitNeverWaits() throws Exception {
+        OctopusDeploymentGate.Permit first = OctopusDeploymentGate.acquire(SERVER, "Environments-1", "Dev", 0, log);
+        OctopusDeploymentGate.Permit second = OctopusDeploymentGate.acquire(SERVER, "Environments-1", "Dev", 0, log);
+        first.close();
+        second.close();
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    public void testQueuedBuildsAreAdmittedInArrivalOrder() throws Exception {
+        final List<String> admitted = new CopyOnWriteArrayList<String>();
+        OctopusDeploymentGate.Permit holder = OctopusDeploymentGate.acquire(SERVER, "Environments-2", "Test", 1, log);
+        Thread first = waiter("first", admitted);
+        first.start();
+        waitForQueueLength(1);
+        Thread second = waiter("second", admitted);
+        second.start();
+        waitForQueueLength(2);
+
+        holder.close();
+        first.join(TimeUnit.SECONDS.toMillis(10));
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(2, admitted.size());
+        assertEquals("first", admitted.get(0));
+        assertEquals("second", admitted.get(1));
+    }
+
+    private Thread waiter(final String name, final List<String> admitted) {
+        return new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    OctopusDeploymentGate.Permit permit = OctopusDeploymentGate.acquire(SERVER, "Environments-2", "Test", 1, log);
+                    admitted.add(name);
+                    permit.close();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private void waitForQueueLength(int waiting) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (countWaiting() < waiting && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(waiting, countWaiting());
+    }
+
+    private int countWaiting() {
+        String text = new String(output.toByteArray(), Charset.defaultCharset());
+        return text.split("Waiting for a deployment slot", -1).length - 1;
+    }
+}
@@ -0,0 +1,158 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Channel;
+import com.octopusdeploy.api.data.Environment;
+import com.octopusdeploy.api.data.Project;
+import com.octopusdeploy.api.data.Tenant;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OctopusMetadataIndex lookups and snapshots
+ */
+public class OctopusMetadataIndexTest {
+
+    private static OctopusMetadataIndex createIndex() {
+        Map<String, Collection<Channel>> channels = new HashMap<String, Collection<Channel>>();
+        channels.put("Projects-1", Arrays.asList(
+                new Channel("Channels-1", "Default", null, "Projects-1", true),
+                new Channel("Channels-2", "Hotfix", "Urgent fixes", "Projects-1", false)));
+        return OctopusMetadataIndex.create(1234L,
+                Arrays.asList(new Project("Projects-1", "Web"), new Project("Projects-2", "Worker")),
+                Arrays.asList(new Environment("Environments-1", "Production", "Live")),
+                Arrays.asList(new Tenant("Tenants-1", "Acme", Arrays.asList("Region/East"))),
+                channels);
+    }
+
+    @Test
+    public void testLookupsByName() {
+        OctopusMetadataIndex index = createIndex();
+        assertEquals("Projects-2", index.getProjectByName("Worker", false).getId());
+        assertNull(index.getProjectByName("worker", false));
+        assertEquals("Projects-2", index.getProjectByName("worker", true).getId());
+        assertEquals("Environments-1", index.getEnvironmentByName("Production", false).getId());
+        assertEquals("Tenants-1", index.getTenantByName("Acme", false).getId());
+        assertEquals("Channels-2", index.getChannelByName("Projects-1", "Hotfix").getId());
+        assertNull(index.getChannels("Projects-2"));
+    }
+
+    @Test
+    public void testNamePrefixSearch() {
+        OctopusNameIndex names = OctopusNameIndex.of(Arrays.asList("web-api", "Worker", "Web", "billing", "WEB-ui", null));
+        assertEquals(5, names.size());
+        assertEquals(Arrays.asList("Web", "web-api", "WEB-ui"), names.startingWith("we", 10));
+        assertEquals(Arrays.asList("Web", "web-api"), names.startingWith("WEB", 2));
+        assertEquals(Arrays.asList("billing", "Web", "web-api", "WEB-ui", "Worker"), names.startingWith(null, 10));
+        assertTrue(names.startingWith("x", 10).isEmpty());
+        assertEquals("WEB-ui", names.findIgnoreCase("web-UI"));
+        assertNull(names.findIgnoreCase("web-"));
+    }
+
+    @Test
+    public void testWithChannelsLeavesOriginalUnchanged() {
+        OctopusMetadataIndex index = createIndex();
+        OctopusMetadataIndex updated = index.withChannels("Projects-2",
+                Collections.singletonList(new Channel("Channels-3", "Default", null, "Projects-2", true)));
+        assertNull(index.getChannels("Projects-2"));
+        assertEquals("Channels-3", updated.getChannelByName("Projects-2", "Default").getId());
+        assertEquals("Channels-1", updated.getChannelByName("Projects-1", "Default").getId());
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createIndex().write(out);
+        OctopusMetadataIndex read = OctopusMetadataIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(1234L, read.getCreatedAt());
+        assertEquals(2, read.getProjects().size());
+        assertEquals("Live", read.getEnvironmentByName("Production", false).getDescription());
+        assertEquals("Tenants-1", read.getTenantByName("Acme", false).getId());
+        assertEquals(Arrays.asList("Region/East"), read.getTenantByName("Acme", false).getTags());
+        Channel hotfix = read.getChannelByName("Projects-1", "Hotfix");
+        assertEquals("Urgent fixes", hotfix.getDescription());
+        assertEquals("Projects-1", hotfix.getProjectId());
+        assertFalse(hotfix.getIsDefault());
+        assertNull(read.getChannelByName("Projects-1", "Default").getDescription());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownSnapshotIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        gzip.close();
+        OctopusMetadataIndex.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptStringLengthIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(new GZIPOutputStream(out));
+        data.writeInt(0x4F435053);
+        data.writeInt(2);
+        data.writeLong(0);
+        data.writeInt(1);
+        data.writeInt(Integer.MAX_VALUE); // the first project id
+        data.close();
+        OctopusMetadataIndex.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testResourcesAreEqualById() {
+        assertEquals(new Tenant("Tenants-1", "Acme"), new Tenant("Tenants-1", "Acme Corp"));
+        assertEquals(new Tenant("Tenants-1", "Acme").hashCode(), new Tenant("Tenants-1", "Acme Corp").hashCode());
+        assertNotEquals(new Tenant("Tenants-1", "Acme"), new Tenant("Tenants-2", "Acme"));
+        assertNotEquals(new Project("Projects-1", "Web"), new Tenant("Projects-1", "Web"));
+    }
+
+    /**
+     * Two fetches of 10,000 tenants, as when the index is refreshed: the second fetch shares every id and name
+     * string with the first, so the strings retained by both indexes are those of one fetch.
+     */
+    @Test
+    public void testTenThousandTenantsShareStringsAcrossFetches() {
+        int count = 10000;
+        OctopusMetadataIndex first = createTenantIndex(count);
+        OctopusMetadataIndex second = createTenantIndex(count);
+
+        Map<String, Boolean> retained = new IdentityHashMap<String, Boolean>();
+        for (OctopusMetadataIndex index : Arrays.asList(first, second)) {
+            for (Tenant tenant : index.getTenants()) {
+                retained.put(tenant.getId(), Boolean.TRUE);
+                retained.put(tenant.getName(), Boolean.TRUE);
+            }
+        }
+        assertEquals(2 * count, retained.size());
+
+        assertEquals(count, second.getTenantNames().size());
+        for (int i = 0; i < count; i += 997) {
+            Tenant tenant = second.getTenantByName("tenant " + i, true);
+            assertEquals("Tenants-" + i, tenant.getId());
+            assertSame(first.getTenantByName("Tenant " + i, false).getId(), tenant.getId());
+        }
+    }
+
+    private static OctopusMetadataIndex createTenantIndex(int count) {
+        List<Tenant> tenants = new ArrayList<Tenant>(count);
+        for (int i = 0; i < count; i++) {
+            // new strings for every fetch, as parsed from a response
+            tenants.add(new Tenant(new String("Tenants-" + i), new String("Tenant " + i)));
+        }
+        return OctopusMetadataIndex.create(1234L, Collections.<Project>emptyList(), Collections.<Environment>emptyList(),
+                tenants, Collections.<String, Collection<Channel>>emptyMap());
+    }
+}
@@ -0,0 +1,42 @@
+package hudson.plugins.octopusdeploy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for splitting streamed task log chunks on line breaks
+ */
+public class OctopusTaskLogStreamerTest {
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPartialLastLineIsHeldBack() {
+        assertEquals(6, OctopusTaskLogStreamer.printableLength(bytes("line1\nline"), false));
+        assertEquals(6, OctopusTaskLogStreamer.printableLength(bytes("line1\nline"), true));
+    }
+
+    @Test
+    public void testCompleteLinesArePrinted() {
+        assertEquals(12, OctopusTaskLogStreamer.printableLength(bytes("line1\nline2\n"), false));
+    }
+
+    @Test
+    public void testLineWithoutBreakOnlyPrintedWhenFull() {
+        assertEquals(0, OctopusTaskLogStreamer.printableLength(bytes("partial"), false));
+        assertEquals(7, OctopusTaskLogStreamer.printableLength(bytes("partial"), true));
+        assertEquals(0, OctopusTaskLogStreamer.printableLength(new byte[0], true));
+    }
+
+    @Test
+    public void testFullChunkIsNotCutInsideACharacter() {
+        byte[] euro = bytes("ab\u20ac"); // the euro sign takes 3 bytes
+        assertEquals(5, OctopusTaskLogStreamer.printableLength(euro, true));
+        assertEquals(2, OctopusTaskLogStreamer.printableLength(Arrays.copyOf(euro, 4), true));
+        assertEquals(2, OctopusTaskLogStreamer.printableLength(Arrays.copyOf(euro, 3), true));
+    }
+}
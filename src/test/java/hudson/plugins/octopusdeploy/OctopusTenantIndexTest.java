@@ -0,0 +1,63 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Tenant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for tenant id, name and tag lookups
+ */
+public class OctopusTenantIndexTest {
+
+    private static OctopusTenantIndex createIndex(int count) {
+        String[] regions = {"Region/East", "Region/West", "Region/North"};
+        List<Tenant> tenants = new ArrayList<Tenant>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> tags = new ArrayList<String>();
+            tags.add(regions[i % 3]);
+            if (i % 5 == 0) {
+                tags.add("Tier/Gold");
+            }
+            tenants.add(new Tenant("Tenants-" + i, "Tenant " + i, tags));
+        }
+        return OctopusTenantIndex.of(tenants);
+    }
+
+    @Test
+    public void testLookupsByIdAndName() {
+        OctopusTenantIndex index = createIndex(8000);
+        assertEquals(8000, index.size());
+        for (int i = 0; i < 8000; i += 123) {
+            assertEquals("Tenant " + i, index.getById("Tenants-" + i).getName());
+            assertEquals("Tenants-" + i, index.getByName("tenant " + i, true).getId());
+        }
+        assertNull(index.getById("Tenants-8000"));
+        assertNull(index.getByName("tenant 1", false));
+        assertNull(OctopusTenantIndex.of(Collections.<Tenant>emptyList()).getById("Tenants-1"));
+    }
+
+    @Test
+    public void testTagsAreOredWithinASetAndAndedAcrossSets() {
+        OctopusTenantIndex index = createIndex(8000);
+        int eastOrWestGold = 0;
+        for (int i = 0; i < 8000; i++) {
+            if (i % 3 != 2 && i % 5 == 0) {
+                eastOrWestGold++;
+            }
+        }
+        List<Tenant> matches = index.getTenantsWithTags(Arrays.asList("Region/East", "tier/gold", "Region/West"));
+        assertEquals(eastOrWestGold, matches.size());
+        for (Tenant tenant : matches) {
+            assertTrue(tenant.getTags().contains("Tier/Gold"));
+            assertFalse(tenant.getTags().contains("Region/North"));
+        }
+        assertEquals(2667, index.getTenantsWithTags(Collections.singleton("Region/East")).size());
+        assertTrue(index.getTenantsWithTags(Arrays.asList("Region/East", "Tier/Silver")).isEmpty());
+        assertTrue(index.getTenantsWithTags(Collections.<String>emptyList()).isEmpty());
+        assertEquals(Arrays.asList("Region/East", "Region/North", "Region/West", "Tier/Gold"), index.getTagNames().startingWith(null, 10));
+    }
+}
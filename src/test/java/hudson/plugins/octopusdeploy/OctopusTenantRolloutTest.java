@@ -0,0 +1,179 @@
+package hudson.plugins.octopusdeploy;
+
+import com.octopusdeploy.api.data.Environment;
+import com.octopusdeploy.api.data.Task;
+import com.octopusdeploy.api.data.Tenant;
+import hudson.model.StreamBuildListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for tenant rollouts: when they stop because of failures, and how the scheduling loop starts and follows deployments
+ */
+public class OctopusTenantRolloutTest {
+    private static final OctopusDeployServer SERVER = new OctopusDeployServer("rollout-test", "http://octopus.example", "API-TEST");
+
+    private final Log log = new Log(new StreamBuildListener(new ByteArrayOutputStream(), Charset.defaultCharset()));
+    private final OctopusTenantDeploymentSummary summary = new OctopusTenantDeploymentSummary("1.0.0", "Test");
+
+    @Test
+    public void testStopsOnceTheFailureShareIsExceeded() {
+        assertFalse(OctopusTenantRollout.exceedsFailureLimit(1, 10, 1000, 10));
+        assertTrue(OctopusTenantRollout.exceedsFailureLimit(2, 10, 1000, 10));
+        assertTrue(OctopusTenantRollout.exceedsFailureLimit(5, 5, 1000, 0));
+    }
+
+    @Test
+    public void testWaitsForEnoughFinishedDeployments() {
+        assertFalse(OctopusTenantRollout.exceedsFailureLimit(1, 1, 1000, 10));
+        assertTrue(OctopusTenantRollout.exceedsFailureLimit(1, 2, 2, 10));
+    }
+
+    @Test
+    public void testNeverStopsAtOneHundredPercent() {
+        assertFalse(OctopusTenantRollout.exceedsFailureLimit(50, 50, 50, 100));
+        assertFalse(OctopusTenantRollout.exceedsFailureLimit(0, 0, 50, 0));
+    }
+
+    @Test
+    public void testWavesStartOnceThePreviousWaveHasFinished() throws Exception {
+        FakeRollout rollout = new FakeRollout("Environments-1", 8, 2, 0);
+        assertTrue(rollout.deploy(tenants("A", "B", "C", "D", "E")));
+        assertEquals(Arrays.asList("start A", "start B", "finish A", "finish B",
+                "start C", "start D", "finish C", "finish D", "start E", "finish E"), rollout.events);
+        assertEquals(5, summary.getTenantCount());
+        assertEquals(0, summary.getFailedCount());
+    }
+
+    @Test
+    public void testEnvironmentLimitHoldsBackDeployments() throws Exception {
+        FakeRollout rollout = new FakeRollout("Environments-2", 8, 0, 2);
+        assertTrue(rollout.deploy(tenants("A", "B", "C", "D", "E")));
+        assertEquals(2, rollout.mostRunning);
+        assertEquals(5, summary.getTenantCount());
+        OctopusDeploymentGate.Permit first = OctopusDeploymentGate.tryAcquire(SERVER, "Environments-2", 2);
+        OctopusDeploymentGate.Permit second = OctopusDeploymentGate.tryAcquire(SERVER, "Environments-2", 2);
+        assertNotNull(second); // every slot was given back
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testRepeatedPollErrorsFailTheDeploymentsInProgress() throws Exception {
+        FakeRollout rollout = new FakeRollout("Environments-3", 8, 0, 0);
+        rollout.pollError = new IOException("Service unavailable");
+        assertFalse(rollout.deploy(tenants("A", "B")));
+        assertEquals(OctopusTenantRollout.MAX_POLL_ERRORS, rollout.polls);
+        assertEquals(2, summary.getFailedCount());
+    }
+
+    @Test
+    public void testTaskThatCannotBeFoundFails() throws Exception {
+        FakeRollout rollout = new FakeRollout("Environments-4", 8, 0, 0);
+        rollout.missing.add("ServerTasks-B");
+        assertFalse(rollout.deploy(tenants("A", "B", "C")));
+        assertEquals(1, summary.getFailedCount());
+        assertEquals("B", summary.getFailedDeployments().get(0).getTenant());
+        assertTrue(summary.getFailedDeployments().get(0).getError().contains("ServerTasks-B could not be found"));
+    }
+
+    @Test
+    public void testRolloutStopsFollowingDeploymentsAfterTheTimeout() throws Exception {
+        FakeRollout rollout = new FakeRollout("Environments-5", 1, 0, 0);
+        rollout.running = true;
+        assertFalse(rollout.deploy(tenants("A", "B")));
+        assertEquals(Arrays.asList("start A"), rollout.events);
+        assertEquals(2, summary.getFailedCount());
+    }
+
+    private static List<Tenant> tenants(String... names) {
+        List<Tenant> tenants = new ArrayList<Tenant>();
+        for (String name : names) {
+            tenants.add(new Tenant(name, name));
+        }
+        return tenants;
+    }
+
+    /**
+     * A rollout against an imaginary Octopus server, on a clock that moves forward only when the rollout sleeps.
+     * Tasks finish the first time they are polled unless they are missing or still running.
+     */
+    private class FakeRollout extends OctopusTenantRollout {
+        private final String environmentId;
+        private final int environmentLimit;
+        private final List<String> events = new ArrayList<String>();
+        private final Set<String> missing = new HashSet<String>();
+        private final Set<String> inProgress = new HashSet<String>();
+        private IOException pollError;
+        private boolean running;
+        private int mostRunning;
+        private int polls;
+        private long clock;
+
+        FakeRollout(String environmentId, int maxInFlight, int waveSize, int environmentLimit) {
+            super(SERVER, "Projects-1", "Releases-1", new Environment(environmentId, "Test", ""), null, true,
+                    maxInFlight, waveSize, 0, 100, summary, log);
+            this.environmentId = environmentId;
+            this.environmentLimit = environmentLimit;
+        }
+
+        @Override
+        String createDeployment(Tenant tenant) {
+            events.add("start " + tenant.getName());
+            inProgress.add("ServerTasks-" + tenant.getId());
+            mostRunning = Math.max(mostRunning, inProgress.size());
+            return "{\"TaskId\":\"ServerTasks-" + tenant.getId() + "\",\"Links\":{\"Web\":\"/app#/deployments/" + tenant.getId() + "\"}}";
+        }
+
+        @Override
+        Map<String, Task> getTasks(Collection<String> taskIds) throws IOException {
+            polls++;
+            if (pollError != null) {
+                throw pollError;
+            }
+            Map<String, Task> tasks = new HashMap<String, Task>();
+            for (String id : taskIds) {
+                if (missing.contains(id)) {
+                    continue;
+                }
+                tasks.put(id, new Task(id, "Deploy", "", running ? "Executing" : "Success", !running));
+                if (!running) {
+                    inProgress.remove(id);
+                    events.add("finish " + id.substring("ServerTasks-".length()));
+                }
+            }
+            return tasks;
+        }
+
+        @Override
+        Task getTask(String taskId) throws IOException {
+            throw new IOException("Not found");
+        }
+
+        @Override
+        OctopusDeploymentGate.Permit tryAcquireSlot() {
+            return OctopusDeploymentGate.tryAcquire(SERVER, environmentId, environmentLimit);
+        }
+
+        @Override
+        void sleep(long millis) {
+            clock += millis;
+        }
+
+        @Override
+        long now() {
+            return clock;
+        }
+    }
+}
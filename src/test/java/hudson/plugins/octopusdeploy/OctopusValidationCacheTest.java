@@ -0,0 +1,58 @@
+package hudson.plugins.octopusdeploy;
+
+import hudson.util.FormValidation;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OctopusValidationCache
+ */
+public class OctopusValidationCacheTest {
+
+    @After
+    public void tearDown() {
+        OctopusValidationCache.clear();
+    }
+
+    private static Callable<FormValidation> counting(final AtomicInteger calls) {
+        return new Callable<FormValidation>() {
+            @Override
+            public FormValidation call() {
+                calls.incrementAndGet();
+                return FormValidation.ok();
+            }
+        };
+    }
+
+    @Test
+    public void testRepeatedValueIsValidatedOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        OctopusValidationCache.validate("server", "project", "Web", counting(calls));
+        OctopusValidationCache.validate("server", "project", "Web", counting(calls));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testKeyIncludesServerFieldAndValue() {
+        AtomicInteger calls = new AtomicInteger();
+        OctopusValidationCache.validate("server", "project", "Web", counting(calls));
+        OctopusValidationCache.validate("other", "project", "Web", counting(calls));
+        OctopusValidationCache.validate("server", "environment", "Web", counting(calls));
+        OctopusValidationCache.validate("server", "project", "Worker", counting(calls));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testFailureBecomesWarning() {
+        FormValidation result = OctopusValidationCache.validate("server", "project", "Web", new Callable<FormValidation>() {
+            @Override
+            public FormValidation call() {
+                throw new IllegalStateException("boom");
+            }
+        });
+        assertEquals(FormValidation.Kind.WARNING, result.kind);
+    }
+}
@@ -0,0 +1,80 @@
+package hudson.plugins.octopusdeploy;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ReleaseNotesBuilder
+ */
+public class ReleaseNotesBuilderTest {
+
+    @Test
+    public void testBuildsAreListedOldestFirst() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(10, 1000);
+        notes.startOlderBuild();
+        assertTrue(notes.add("c3", "third"));
+        notes.startOlderBuild();
+        assertTrue(notes.add("c1", "first"));
+        assertTrue(notes.add("c2", "second"));
+        assertEquals("first\nsecond\nthird\n", notes.toString());
+        assertFalse(notes.isTruncated());
+    }
+
+    @Test
+    public void testCommitsAreOnlyListedOnce() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(10, 1000);
+        notes.startOlderBuild();
+        notes.add("c2", "second");
+        notes.startOlderBuild();
+        notes.add("c1", "first");
+        notes.add("c2", "second");
+        notes.add(null, "no id");
+        notes.add(null, "no id");
+        assertEquals("first\nno id\nno id\nsecond\n", notes.toString());
+        assertEquals(4, notes.getEntryCount());
+    }
+
+    @Test
+    public void testEntryLimitDropsOlderChanges() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(2, 1000);
+        notes.startOlderBuild();
+        assertTrue(notes.add("c3", "third"));
+        notes.startOlderBuild();
+        assertTrue(notes.add("c2", "second"));
+        assertFalse(notes.add("c1", "first"));
+        assertTrue(notes.isTruncated());
+        assertEquals("[Older changes omitted - release notes are limited to 2 changes and 1000 characters]\nsecond\nthird\n", notes.toString());
+    }
+
+    @Test
+    public void testLengthLimitStopsBeforeOverflowing() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(10, 10);
+        notes.startOlderBuild();
+        assertTrue(notes.add("c2", "12345"));
+        assertFalse(notes.add("c1", "67890"));
+        assertTrue(notes.isTruncated());
+        assertTrue(notes.toString().endsWith("\n12345\n"));
+    }
+
+    @Test
+    public void testBuildsWithoutChangesCountTowardTheEntryLimit() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(2, 1000, 100);
+        assertTrue(notes.startOlderBuild());
+        assertTrue(notes.add("c2", "second"));
+        assertTrue(notes.startOlderBuild());
+        assertFalse(notes.startOlderBuild());
+        assertTrue(notes.isTruncated());
+        assertTrue(notes.toString().endsWith("\nsecond\n"));
+    }
+
+    @Test
+    public void testBuildLimitStopsTheWalk() {
+        ReleaseNotesBuilder notes = new ReleaseNotesBuilder(10, 1000, 2);
+        assertTrue(notes.startOlderBuild());
+        assertTrue(notes.add("c2", "second"));
+        assertTrue(notes.startOlderBuild());
+        assertTrue(notes.add("c1", "first"));
+        assertFalse(notes.startOlderBuild());
+        assertTrue(notes.isTruncated());
+    }
+}